@@ -0,0 +1,72 @@
+package com.sb;
+
+import com.sb.flake.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.time.Instant;
+
+public class FlakeClockBenchmark {
+    private static final int N_FORKS = 5;
+    private static final int N_ITERATIONS = 3;
+
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    public void measureShiftedTime_1Thread(Blackhole bh, ClockPlan plan) {
+        bh.consume(plan.clock.shiftedTime());
+    }
+
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Threads(4)
+    public void measureShiftedTime_4Threads(Blackhole bh, ClockPlan plan) {
+        bh.consume(plan.clock.shiftedTime());
+    }
+
+    @State(Scope.Benchmark)
+    public static class ClockPlan {
+        @Param({"SNOWFLAKE", "SONYFLAKE", "VERY_HIGH_FREQUENCY"})
+        public FlakePreset preset;
+        @Param({"Monotonic", "Cached", "Persistent"})
+        public String implementation;
+        public FlakeClock clock;
+
+        private FlakeClock fromImplementation(String implementation, GenerationRules rules) {
+            switch (implementation) {
+                case "Monotonic":
+                    return new MonotonicFlakeClock(rules);
+                case "Cached":
+                    return new CachedFlakeClock(rules);
+                case "Persistent":
+                    try {
+                        return new PersistentFlakeClock(new MonotonicFlakeClock(rules),
+                                Files.createTempDirectory("sunflake").resolve("high-water-mark"));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                default: throw new IllegalArgumentException("Unknown implementation: " + implementation);
+            }
+        }
+
+        @Setup
+        public void setup() {
+            clock = fromImplementation(implementation, preset.getRules(Instant.now()));
+        }
+
+        @TearDown
+        public void tearDown() {
+            if (clock instanceof CachedFlakeClock) {
+                ((CachedFlakeClock) clock).close();
+            } else if (clock instanceof PersistentFlakeClock) {
+                ((PersistentFlakeClock) clock).close();
+            }
+        }
+    }
+}
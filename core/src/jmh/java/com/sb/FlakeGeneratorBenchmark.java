@@ -45,9 +45,52 @@ public class FlakeGeneratorBenchmark {
         bh.consume(plan.generator.nextId());
     }
 
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    public void measureBatchCall_1Thread(Blackhole bh, HighFrequencyExecutionPlan plan, BatchPlan batch) {
+        plan.generator.nextIds(batch.ids);
+        bh.consume(batch.ids);
+    }
+
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Threads(12)
+    public void measureBatchCall_12Threads(Blackhole bh, HighFrequencyExecutionPlan plan, BatchPlan batch) {
+        plan.generator.nextIds(batch.ids);
+        bh.consume(batch.ids);
+    }
+
+    /**
+     * Three threads generating single IDs, competing with a thread generating batches of IDs.
+     */
+    @Benchmark
+    @Group("asymmetric")
+    @GroupThreads(3)
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    public void measureAsymmetric_singleCalls(Blackhole bh, HighFrequencyExecutionPlan plan) {
+        bh.consume(plan.generator.nextId());
+    }
+
+    @Benchmark
+    @Group("asymmetric")
+    @GroupThreads(1)
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    public void measureAsymmetric_batchCalls(Blackhole bh, HighFrequencyExecutionPlan plan, BatchPlan batch) {
+        plan.generator.nextIds(batch.ids);
+        bh.consume(batch.ids);
+    }
+
     @State(Scope.Benchmark)
     public static class HighFrequencyExecutionPlan {
-        @Param({"Synchronized"})
+        @Param({"Synchronized", "LockFree", "Lane", "Sharded"})
         public String implementation;
         public FlakeGenerator generator;
 
@@ -55,6 +98,19 @@ public class FlakeGeneratorBenchmark {
             switch (implementation) {
                 case "Synchronized":
                     return new SynchronizedFlakeGenerator(1L, GenerationRules.veryHighFrequency(Instant.now()));
+                case "LockFree":
+                    return new LockFreeFlakeGenerator(1L, GenerationRules.veryHighFrequency(Instant.now()));
+                case "Lane":
+                    return new LaneFlakeGenerator(1L, new GenerationRulesBuilder(GenerationRules.veryHighFrequency(Instant.now()))
+                            .setLaneSize(4)
+                            .build());
+                case "Sharded":
+                    // Borrow 4 bits of the sequence to give each of the 16 shards its own worker ID
+                    GenerationRules rules = new GenerationRulesBuilder(GenerationRules.veryHighFrequency(Instant.now()))
+                            .setWorkerIdSize(5)
+                            .setSequenceSize(28)
+                            .build();
+                    return ShardedFlakeGenerator.ofWorkerIdSlice(1L, 4, new MonotonicFlakeClock(rules), ShardedFlakeGenerator.Routing.THREAD);
                 default: throw new IllegalArgumentException("Unknown implementation: " + implementation);
             }
         }
@@ -64,4 +120,20 @@ public class FlakeGeneratorBenchmark {
             generator = fromImplementation(implementation);
         }
     }
+
+    /**
+     * Per thread destination of the batch benchmarks.
+     * The scores of these benchmarks are in batches, multiply them by the batch size to get a score in IDs.
+     */
+    @State(Scope.Thread)
+    public static class BatchPlan {
+        @Param({"1", "64", "4096"})
+        public int batchSize;
+        public long[] ids;
+
+        @Setup
+        public void setup() {
+            ids = new long[batchSize];
+        }
+    }
 }
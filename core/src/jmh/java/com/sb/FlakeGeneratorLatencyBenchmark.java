@@ -0,0 +1,64 @@
+package com.sb;
+
+import com.sb.flake.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples the latency of single calls, to compare the tail percentiles (p99, p99.9) of the generators.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FlakeGeneratorLatencyBenchmark {
+    private static final int N_FORKS = 5;
+    private static final int N_ITERATIONS = 3;
+
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    public long measureSingleCall_1Thread(LatencyPlan plan) {
+        return plan.generator.nextId();
+    }
+
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Threads(4)
+    public long measureSingleCall_4Threads(LatencyPlan plan) {
+        return plan.generator.nextId();
+    }
+
+    @State(Scope.Benchmark)
+    public static class LatencyPlan {
+        @Param({"Synchronized", "Pregenerated"})
+        public String implementation;
+        public FlakeGenerator generator;
+
+        private FlakeGenerator fromImplementation(String implementation) {
+            GenerationRules rules = GenerationRules.snowflake(Instant.now());
+            switch (implementation) {
+                case "Synchronized":
+                    return new SynchronizedFlakeGenerator(1L, rules);
+                case "Pregenerated":
+                    return new PregeneratedFlakeGenerator(new SynchronizedFlakeGenerator(1L, rules));
+                default: throw new IllegalArgumentException("Unknown implementation: " + implementation);
+            }
+        }
+
+        @Setup
+        public void setup() {
+            generator = fromImplementation(implementation);
+        }
+
+        @TearDown
+        public void tearDown() {
+            if (generator instanceof PregeneratedFlakeGenerator) {
+                ((PregeneratedFlakeGenerator) generator).close();
+            }
+        }
+    }
+}
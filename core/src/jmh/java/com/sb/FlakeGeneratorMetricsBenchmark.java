@@ -0,0 +1,61 @@
+package com.sb;
+
+import com.sb.flake.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Instant;
+
+/**
+ * Measures the overhead of monitoring a generator, compared to the same generator without a listener.
+ */
+public class FlakeGeneratorMetricsBenchmark {
+    private static final int N_FORKS = 5;
+    private static final int N_ITERATIONS = 3;
+
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    public void measureSingleCall_1Thread(Blackhole bh, MonitoringPlan plan) {
+        bh.consume(plan.generator.nextId());
+    }
+
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Threads(4)
+    public void measureSingleCall_4Threads(Blackhole bh, MonitoringPlan plan) {
+        bh.consume(plan.generator.nextId());
+    }
+
+    @State(Scope.Benchmark)
+    public static class MonitoringPlan {
+        @Param({"Synchronized", "LockFree", "Lane"})
+        public String implementation;
+        @Param({"false", "true"})
+        public boolean monitored;
+        public FlakeGenerator generator;
+
+        @Setup
+        public void setup() {
+            FlakeClock clock = new MonotonicFlakeClock(new GenerationRulesBuilder(GenerationRules.veryHighFrequency(Instant.now()))
+                    .setLaneSize(4)
+                    .build());
+            FlakeGeneratorListener listener = monitored ? new FlakeGeneratorMetrics() : null;
+            switch (implementation) {
+                case "Synchronized":
+                    generator = new SynchronizedFlakeGenerator(1L, clock, WaitStrategy.BUSY_SPIN, listener);
+                    break;
+                case "LockFree":
+                    generator = new LockFreeFlakeGenerator(1L, clock, WaitStrategy.BUSY_SPIN, listener);
+                    break;
+                case "Lane":
+                    generator = new LaneFlakeGenerator(1L, clock, -1, WaitStrategy.BUSY_SPIN, listener);
+                    break;
+                default: throw new IllegalArgumentException("Unknown implementation: " + implementation);
+            }
+        }
+    }
+}
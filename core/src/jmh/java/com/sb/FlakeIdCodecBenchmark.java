@@ -0,0 +1,122 @@
+package com.sb;
+
+import com.sb.flake.FlakeIdCodec;
+import com.sb.flake.GenerationRules;
+import com.sb.flake.SynchronizedFlakeGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Instant;
+
+/**
+ * Compares the text encodings of IDs with their decimal representation.
+ * The GC profiler of the JMH task reports their allocation rates: the buffer variants must not allocate.
+ */
+public class FlakeIdCodecBenchmark {
+    private static final int N_FORKS = 5;
+    private static final int N_ITERATIONS = 3;
+
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    public void measureLongToString(Blackhole bh, CodecPlan plan) {
+        bh.consume(Long.toString(plan.nextFlake()));
+    }
+
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    public void measureLongParseLong(Blackhole bh, CodecPlan plan) {
+        bh.consume(Long.parseLong(plan.nextDecimal()));
+    }
+
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    public void measureEncodeString(Blackhole bh, CodecPlan plan) {
+        bh.consume(plan.codec.encode(plan.nextFlake()));
+    }
+
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    public void measureEncodeChars(Blackhole bh, CodecPlan plan) {
+        plan.codec.encode(plan.nextFlake(), plan.chars, 0);
+        bh.consume(plan.chars);
+    }
+
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    public void measureEncodeBytes(Blackhole bh, CodecPlan plan) {
+        plan.codec.encode(plan.nextFlake(), plan.bytes, 0);
+        bh.consume(plan.bytes);
+    }
+
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    public void measureDecodeString(Blackhole bh, CodecPlan plan) {
+        bh.consume(plan.codec.decode(plan.nextEncoded()));
+    }
+
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    public void measureDecodeBytes(Blackhole bh, CodecPlan plan) {
+        bh.consume(plan.codec.decode(plan.encodedBytes, plan.nextOffset()));
+    }
+
+    @State(Scope.Thread)
+    public static class CodecPlan {
+        private static final int N_FLAKES = 1024; // Power of two to cycle with a mask
+
+        @Param({"BASE32_CROCKFORD", "BASE62"})
+        public FlakeIdCodec codec;
+        public long[] flakes;
+        public String[] decimals;
+        public String[] encoded;
+        public byte[] encodedBytes;
+        public char[] chars;
+        public byte[] bytes;
+        private int index;
+
+        @Setup
+        public void setup() {
+            flakes = new SynchronizedFlakeGenerator(1L, GenerationRules.snowflake(Instant.now())).nextIds(N_FLAKES);
+            decimals = new String[N_FLAKES];
+            encoded = new String[N_FLAKES];
+            encodedBytes = new byte[N_FLAKES * codec.getLength()];
+            for (int i = 0; i < N_FLAKES; i++) {
+                decimals[i] = Long.toString(flakes[i]);
+                encoded[i] = codec.encode(flakes[i]);
+                codec.encode(flakes[i], encodedBytes, i * codec.getLength());
+            }
+            chars = new char[codec.getLength()];
+            bytes = new byte[codec.getLength()];
+        }
+
+        public long nextFlake() {
+            return flakes[index++ & (N_FLAKES - 1)];
+        }
+
+        public String nextDecimal() {
+            return decimals[index++ & (N_FLAKES - 1)];
+        }
+
+        public String nextEncoded() {
+            return encoded[index++ & (N_FLAKES - 1)];
+        }
+
+        public int nextOffset() {
+            return (index++ & (N_FLAKES - 1)) * codec.getLength();
+        }
+    }
+}
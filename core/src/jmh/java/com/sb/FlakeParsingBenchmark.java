@@ -0,0 +1,135 @@
+package com.sb;
+
+import com.sb.flake.BinaryUtil;
+import com.sb.flake.GenerationRules;
+import com.sb.flake.MutableFlakeData;
+import com.sb.flake.SunflakeConfiguration;
+import com.sb.flake.SynchronizedFlakeGenerator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Instant;
+
+/**
+ * Compares the allocating and the allocation-free ways of parsing and formatting IDs.
+ * The GC profiler of the JMH task reports their allocation rates.
+ */
+public class FlakeParsingBenchmark {
+    private static final int N_FORKS = 5;
+    private static final int N_ITERATIONS = 3;
+
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    public void measureParse(Blackhole bh, ParsingPlan plan) {
+        bh.consume(plan.rules.parse(plan.nextFlake()));
+    }
+
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    public void measureParseInto(Blackhole bh, ParsingPlan plan) {
+        bh.consume(plan.rules.parse(plan.nextFlake(), plan.data));
+    }
+
+    /**
+     * Parsing with the global rules, as done per log line: the configuration read must not cost more than a field load.
+     */
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    public void measureParseWithGlobalRules(Blackhole bh, ParsingPlan plan) {
+        bh.consume(SunflakeConfiguration.parse(plan.nextFlake()));
+    }
+
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    public void measureParseTimestamp(Blackhole bh, ParsingPlan plan) {
+        bh.consume(plan.rules.parse(plan.nextFlake()).getTimestamp().toEpochMilli());
+    }
+
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    public void measureEpochMillis(Blackhole bh, ParsingPlan plan) {
+        bh.consume(plan.rules.epochMillis(plan.nextFlake()));
+    }
+
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    public void measureIsolateComponents(Blackhole bh, ParsingPlan plan) {
+        bh.consume(plan.rules.isolateComponents(plan.nextFlake()));
+    }
+
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    public void measureToFormattedBinary(Blackhole bh, ParsingPlan plan) {
+        bh.consume(BinaryUtil.toFormattedBinary(plan.nextFlake(), plan.rules));
+    }
+
+    /**
+     * Decodes all the flakes of the plan into columns at once.
+     */
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    public void measureDecode(Blackhole bh, ParsingPlan plan) {
+        plan.rules.decode(plan.flakes, 0, plan.flakes.length, plan.timestamps, plan.workerIds, plan.sequences);
+        bh.consume(plan.timestamps);
+    }
+
+    /**
+     * Scalar equivalent of {@link #measureDecode(Blackhole, ParsingPlan)}.
+     */
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    public void measureExtractAll(Blackhole bh, ParsingPlan plan) {
+        for (int i = 0; i < plan.flakes.length; i++) {
+            long flake = plan.flakes[i];
+            plan.timestamps[i] = plan.rules.timestampTicks(flake);
+            plan.workerIds[i] = plan.rules.workerId(flake);
+            plan.sequences[i] = plan.rules.sequence(flake);
+        }
+        bh.consume(plan.timestamps);
+    }
+
+    @State(Scope.Thread)
+    public static class ParsingPlan {
+        private static final int N_FLAKES = 1024; // Power of two to cycle with a mask
+
+        public GenerationRules rules;
+        public MutableFlakeData data;
+        public long[] flakes;
+        public long[] timestamps;
+        public long[] workerIds;
+        public long[] sequences;
+        private int index;
+
+        @Setup
+        public void setup() {
+            rules = GenerationRules.snowflake(Instant.now());
+            data = new MutableFlakeData();
+            flakes = new SynchronizedFlakeGenerator(1L, rules).nextIds(N_FLAKES);
+            timestamps = new long[N_FLAKES];
+            workerIds = new long[N_FLAKES];
+            sequences = new long[N_FLAKES];
+        }
+
+        public long nextFlake() {
+            return flakes[index++ & (N_FLAKES - 1)];
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.sb;
+
+import com.sb.flake.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures every generator on every preset, both in throughput and in sampled latency.
+ * <p>
+ * The snowflake and sonyflake presets have few sequence numbers per tick, so the generators exhaust them
+ * and spend most of their time waiting for the next tick: the latency samples show the cost of the wait path
+ * in the high percentiles.
+ * </p>
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FlakePresetBenchmark {
+    private static final int N_FORKS = 3;
+    private static final int N_ITERATIONS = 3;
+
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    public long measureSingleCall_1Thread(PresetPlan plan) {
+        return plan.generator.nextId();
+    }
+
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Threads(4)
+    public long measureSingleCall_4Threads(PresetPlan plan) {
+        return plan.generator.nextId();
+    }
+
+    @State(Scope.Benchmark)
+    public static class PresetPlan {
+        @Param({"SNOWFLAKE", "SONYFLAKE", "VERY_HIGH_FREQUENCY"})
+        public FlakePreset preset;
+        @Param({"Synchronized", "LockFree", "Lane"})
+        public String implementation;
+        public FlakeGenerator generator;
+
+        private FlakeGenerator fromImplementation(String implementation, GenerationRules rules) {
+            switch (implementation) {
+                case "Synchronized":
+                    return new SynchronizedFlakeGenerator(1L, rules);
+                case "LockFree":
+                    return new LockFreeFlakeGenerator(1L, rules);
+                case "Lane":
+                    return new LaneFlakeGenerator(1L, new GenerationRulesBuilder(rules)
+                            .setLaneSize(2)
+                            .build());
+                default: throw new IllegalArgumentException("Unknown implementation: " + implementation);
+            }
+        }
+
+        @Setup
+        public void setup() {
+            generator = fromImplementation(implementation, preset.getRules(Instant.now()));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.sb;
+
+import com.sb.flake.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cold start of Sunflake, as paid by every new instance of a serverless deployment.
+ * <p>
+ * Each fork is a new JVM that runs a single invocation, so every measure includes the class loading,
+ * the reading of the configuration and the seeding of the random generators.
+ * The configuration is read from the sunflake.properties file of the benchmarks, with a random worker ID.
+ * </p>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StartupBenchmark {
+    private static final int N_FORKS = 20;
+
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public long measureConfiguration() {
+        return SunflakeConfiguration.getWorkerId();
+    }
+
+    /**
+     * Everything needed before the first ID is handed out.
+     */
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public long measureFirstId() {
+        FlakeGenerator generator = new LockFreeFlakeGenerator(SunflakeConfiguration.getWorkerId(),
+                SunflakeConfiguration.getGlobalRules());
+        return generator.nextId();
+    }
+
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public long measureRandomWorkerId() {
+        return new RandomWorkerIdSupplier().getWorkerId(10);
+    }
+
+    /**
+     * Baseline: how random worker IDs used to be drawn, from the strong generator that may block for entropy.
+     */
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = 0)
+    @Measurement(iterations = 1)
+    public long measureStrongRandomWorkerId() throws NoSuchAlgorithmException {
+        return SecureRandom.getInstanceStrong().nextLong() & ((1L << 10) - 1);
+    }
+}
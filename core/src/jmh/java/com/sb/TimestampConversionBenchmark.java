@@ -0,0 +1,59 @@
+package com.sb;
+
+import com.sb.flake.FlakePreset;
+import com.sb.flake.GenerationRules;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Isolates the conversion of elapsed nanoseconds to ticks done for every ID,
+ * without the cost of reading the clock.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TimestampConversionBenchmark {
+    private static final int N_FORKS = 5;
+    private static final int N_ITERATIONS = 3;
+
+    /**
+     * Conversion as it was done before {@link GenerationRules#nanosToTicks(long)}.
+     */
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    public long measureTimeUnitConversion(ConversionPlan plan) {
+        plan.nanos += plan.increment;
+        return plan.rules.getTimeUnit().convert(plan.nanos, TimeUnit.NANOSECONDS) / plan.rules.getTimeUnitsPerTick();
+    }
+
+    @Benchmark
+    @Fork(value = N_FORKS)
+    @Warmup(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    @Measurement(iterations = N_ITERATIONS, time = N_ITERATIONS)
+    public long measureNanosToTicks(ConversionPlan plan) {
+        plan.nanos += plan.increment;
+        return plan.rules.nanosToTicks(plan.nanos);
+    }
+
+    @State(Scope.Thread)
+    public static class ConversionPlan {
+        @Param({"SNOWFLAKE", "SONYFLAKE", "VERY_HIGH_FREQUENCY"})
+        public FlakePreset preset;
+        public GenerationRules rules;
+        /**
+         * Advanced on every call so that the JIT cannot hoist the conversion out of the measurement loop.
+         */
+        public long nanos;
+        public long increment;
+
+        @Setup
+        public void setup() {
+            rules = preset.getRules(Instant.now());
+            nanos = TimeUnit.DAYS.toNanos(42);
+            increment = 997;
+        }
+    }
+}
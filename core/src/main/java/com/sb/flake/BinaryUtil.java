@@ -1,24 +1,110 @@
 package com.sb.flake;
 
+import java.io.IOException;
+
 public final class BinaryUtil {
+    private static final char SEPARATOR = '_';
+
     private BinaryUtil() {
     }
 
     public static String toUnformattedBinary(long value) {
-        return "0".repeat(Long.numberOfLeadingZeros(value))
-                + Long.toBinaryString(value);
+        char[] chars = new char[Long.SIZE];
+        for (int i = 0; i < Long.SIZE; i++) {
+            chars[i] = (char) ('0' + (int) (value >>> (Long.SIZE - 1 - i) & 1));
+        }
+        return new String(chars);
     }
 
+    /**
+     * Write the 64 bits of an ID, from the most significant, with a separator between its groups:
+     * the unused bits (the sign bit when it cannot be used), the timestamp, the worker ID and the sequence number.
+     * Empty groups are skipped, for example <code>0_00...01_0000000001_000000000000</code> for a Snowflake ID.
+     * @param value the ID
+     * @param rules the rules that generated the ID
+     * @return the formatted bits, of {@link #formattedBinaryLength(GenerationRules)} characters
+     */
     public static String toFormattedBinary(long value, GenerationRules rules) {
-        String unformatted = toUnformattedBinary(value);
-        StringBuilder sb = new StringBuilder(unformatted.length() + 2 + (rules.canUseSignBit() ? 1 : 0));
-        char[] bits = unformatted.toCharArray();
-        for (int i = 0; i < bits.length; i++) {
-            if ((!rules.canUseSignBit() && i == Long.SIZE - rules.getTimestampSize() - rules.getWorkerSize() - rules.getSequenceSize()) // Sign bit
-                    || i == Long.SIZE - rules.getWorkerSize() - rules.getSequenceSize() // End of timestamp
-                    || i == Long.SIZE - rules.getSequenceSize()) // End of worker id
-                sb.append(bits[i]);
+        char[] chars = new char[formattedBinaryLength(rules)];
+        toFormattedBinary(value, rules, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * Write the formatted bits of an ID into an array, see {@link #toFormattedBinary(long, GenerationRules)}.
+     * @param dst where to write the {@link #formattedBinaryLength(GenerationRules)} characters
+     * @param offset index of the first character
+     * @return the index following the last character written
+     */
+    public static int toFormattedBinary(long value, GenerationRules rules, char[] dst, int offset) {
+        long separators = separators(rules);
+        int length = Long.SIZE + Long.bitCount(separators);
+        if (offset < 0 || offset > dst.length - length) {
+            throw new IndexOutOfBoundsException("The formatted bits need " + length + " characters from index " + offset
+                    + ", the array has " + dst.length);
+        }
+        int i = offset;
+        for (int bit = Long.SIZE - 1; bit >= 0; bit--) {
+            dst[i++] = (char) ('0' + (int) (value >>> bit & 1));
+            if ((separators >>> bit & 1) != 0) {
+                dst[i++] = SEPARATOR;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Append the formatted bits of an ID, see {@link #toFormattedBinary(long, GenerationRules)}.
+     * @return the builder
+     */
+    public static StringBuilder appendFormattedBinary(long value, GenerationRules rules, StringBuilder sb) {
+        long separators = separators(rules);
+        sb.ensureCapacity(sb.length() + Long.SIZE + Long.bitCount(separators));
+        for (int bit = Long.SIZE - 1; bit >= 0; bit--) {
+            sb.append((char) ('0' + (int) (value >>> bit & 1)));
+            if ((separators >>> bit & 1) != 0) {
+                sb.append(SEPARATOR);
+            }
         }
-        return sb.toString();
+        return sb;
+    }
+
+    /**
+     * Append the formatted bits of an ID, see {@link #toFormattedBinary(long, GenerationRules)}.
+     * @return the appendable
+     */
+    public static <A extends Appendable> A appendFormattedBinary(long value, GenerationRules rules, A out) throws IOException {
+        long separators = separators(rules);
+        for (int bit = Long.SIZE - 1; bit >= 0; bit--) {
+            out.append((char) ('0' + (int) (value >>> bit & 1)));
+            if ((separators >>> bit & 1) != 0) {
+                out.append(SEPARATOR);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Get how many characters the formatted bits of the IDs of the rules have.
+     */
+    public static int formattedBinaryLength(GenerationRules rules) {
+        return Long.SIZE + Long.bitCount(separators(rules));
+    }
+
+    /**
+     * Get a mask of the bits followed by a separator: the lowest bit of each non-empty group but the last.
+     */
+    private static long separators(GenerationRules rules) {
+        int sequenceSize = rules.getSequenceSize();
+        int workerSize = rules.getWorkerSize();
+        int timestampSize = rules.getTimestampSize();
+        // The bit above each group, where an empty group gives the same bit as the group below it
+        return separatorAbove(sequenceSize)
+                | separatorAbove(sequenceSize + workerSize)
+                | separatorAbove(sequenceSize + workerSize + timestampSize);
+    }
+
+    private static long separatorAbove(int bits) {
+        return bits > 0 && bits < Long.SIZE ? 1L << bits : 0;
     }
 }
@@ -0,0 +1,47 @@
+package com.sb.flake;
+
+/**
+ * Splits arrays of flakes into columns of components.
+ * <p>
+ * The best implementation available on the running JVM is selected once, see {@link Holder#INSTANCE}.
+ * </p>
+ */
+interface BulkFlakeDecoder {
+    /**
+     * Decode the components of a range of flakes. A null column is not computed.
+     * @param rules rules of the flakes
+     * @param flakes the flakes to decode
+     * @param offset index of the first flake to decode
+     * @param length how many flakes to decode
+     * @param timestamps where to write the timestamps, in ticks since the epoch
+     * @param workerIds where to write the worker IDs
+     * @param sequences where to write the sequence numbers
+     * @param destinationOffset index of the columns where to write the components of the first flake
+     */
+    void decode(GenerationRules rules, long[] flakes, int offset, int length,
+                long[] timestamps, long[] workerIds, long[] sequences, int destinationOffset);
+
+    /**
+     * Lazily selects the vectorized decoder if the <code>jdk.incubator.vector</code> module is available,
+     * the scalar decoder otherwise.
+     */
+    final class Holder {
+        static final BulkFlakeDecoder INSTANCE = select();
+
+        private Holder() {
+        }
+
+        private static BulkFlakeDecoder select() {
+            if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+                try {
+                    return (BulkFlakeDecoder) Class.forName("com.sb.flake.VectorBulkFlakeDecoder")
+                            .getDeclaredConstructor()
+                            .newInstance();
+                } catch (ReflectiveOperationException | LinkageError e) {
+                    // The module is there but unusable, the scalar decoder is always safe
+                }
+            }
+            return new ScalarBulkFlakeDecoder();
+        }
+    }
+}
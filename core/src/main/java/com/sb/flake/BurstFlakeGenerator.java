@@ -0,0 +1,85 @@
+package com.sb.flake;
+
+import java.time.Duration;
+
+/**
+ * A lock-free Flake ID generator that absorbs bursts by borrowing sequence numbers from future ticks.
+ * This implementation is thread-safe and lock-free.
+ * <p>
+ * When the sequence numbers of the current tick are exhausted, this generator carries on with the sequence numbers
+ * of the following ticks instead of waiting, as long as it stays at most {@link #getMaxLeadTicks() a bounded lead}
+ * ahead of the clock. It only waits once that lead is reached, until the clock catches up.
+ * IDs stay unique and increasing, but the timestamps of the IDs generated during a burst are up to the lead
+ * ahead of the time they were generated at. Once the burst is over, the clock catches up with the borrowed ticks,
+ * and the generator is back to the current tick.
+ * </p>
+ * <p>
+ * The lead and the usage of the current tick can be read at any time, to know how close the generator is to saturating.
+ * A {@link FlakeGeneratorMetrics} listener gives the utilization of every completed tick.
+ * </p>
+ */
+public class BurstFlakeGenerator extends LockFreeFlakeGenerator {
+    private final long MAX_LEAD_TICKS;
+
+    public BurstFlakeGenerator(long workerId, GenerationRules rules, Duration maxLead) {
+        this(workerId, new MonotonicFlakeClock(rules), maxLead);
+    }
+
+    public BurstFlakeGenerator(long workerId, FlakeClock clock, Duration maxLead) {
+        this(workerId, clock, clock.getRules().ticksIn(maxLead), WaitStrategy.BUSY_SPIN, null);
+    }
+
+    /**
+     * Create a generator.
+     * @param workerId the worker ID
+     * @param clock the clock giving the timestamps
+     * @param maxLeadTicks how many ticks ahead of the clock IDs may be generated
+     * @param waitStrategy how to wait once the maximum lead is reached
+     * @param listener the receiver of the events of this generator, or null
+     */
+    public BurstFlakeGenerator(long workerId, FlakeClock clock, long maxLeadTicks, WaitStrategy waitStrategy,
+                               FlakeGeneratorListener listener) {
+        super(workerId, clock, waitStrategy, listener, maxLeadTicks);
+        this.MAX_LEAD_TICKS = maxLeadTicks;
+    }
+
+    /**
+     * Get how many ticks ahead of the clock IDs may be generated.
+     */
+    public long getMaxLeadTicks() {
+        return MAX_LEAD_TICKS;
+    }
+
+    /**
+     * Get how many ticks ahead of the clock the next ID would be generated.
+     * @return zero when the generator is on the current tick, at most {@link #getMaxLeadTicks()} + 1
+     * when all the sequence numbers it may borrow are exhausted
+     */
+    public long getLeadTicks() {
+        long lead = (nextSlot() >>> this.RULES.SEQUENCE_SIZE) - (packedMonotonicTime() >>> this.RULES.SEQUENCE_SIZE);
+        return Math.max(0, lead);
+    }
+
+    /**
+     * Get how far ahead of the clock the next ID would be generated.
+     */
+    public Duration getLead() {
+        return Duration.ofNanos(getLeadTicks() * this.RULES.getNanosPerTick());
+    }
+
+    /**
+     * Get the ratio of the sequence numbers of the current tick that were used, between 0 and 1.
+     * @return 1 while the generator borrows from future ticks
+     */
+    public double getCurrentTickUtilization() {
+        long next = nextSlot();
+        long now = packedMonotonicTime();
+        if (Long.compareUnsigned(next, now) < 0) {
+            return 0; // Nothing generated yet during the current tick
+        }
+        if (Long.compareUnsigned(next & ~this.RULES.SEQUENCE_MASK, now) > 0) {
+            return 1;
+        }
+        return (next & this.RULES.SEQUENCE_MASK) / (double) this.RULES.getSequencesPerTick();
+    }
+}
@@ -0,0 +1,114 @@
+package com.sb.flake;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A clock that trades precision for throughput.
+ * <p>
+ * A background daemon thread reads the source clock at a fixed interval and publishes the shifted timestamp
+ * in a volatile field, so that reading the time is a single memory load.
+ * The timestamps lag behind the source clock by up to the update interval, plus the scheduling delay of the thread.
+ * The default interval is a tenth of a tick, which makes this clock best suited to coarse ticks such as milliseconds.
+ * </p>
+ * <p>
+ * The background thread runs until the clock is {@link #close() closed}. A closed clock reads the source clock
+ * on every call instead, so that the generators still using it do not wait forever for the next tick.
+ * </p>
+ */
+public class CachedFlakeClock implements FlakeClock, AutoCloseable {
+    private static final long serialVersionUID = 1L;
+    /**
+     * Lower bound of the default update interval, below which the ticker thread would mostly burn CPU.
+     */
+    public static final long MIN_DEFAULT_UPDATE_INTERVAL_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+    private final FlakeClock source;
+    private final long updateIntervalNanos;
+    private volatile long current;
+    private volatile boolean running;
+    private final transient Thread ticker;
+
+    public CachedFlakeClock(GenerationRules rules) {
+        this(new MonotonicFlakeClock(rules));
+    }
+
+    public CachedFlakeClock(FlakeClock source) {
+        this(source, defaultUpdateInterval(source.getRules()));
+    }
+
+    /**
+     * Create a cached clock and start its background thread.
+     * @param source the clock to read from the background thread
+     * @param updateIntervalNanos how long to wait, in nanoseconds, between two reads of the source clock
+     */
+    public CachedFlakeClock(FlakeClock source, long updateIntervalNanos) {
+        if (updateIntervalNanos <= 0) {
+            throw new IllegalArgumentException("The update interval must be positive, was: " + updateIntervalNanos);
+        }
+        this.source = source;
+        this.updateIntervalNanos = updateIntervalNanos;
+        this.current = source.shiftedTime();
+        this.running = true;
+        this.ticker = new Thread(this::tick, "sunflake-clock");
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    static long defaultUpdateInterval(GenerationRules rules) {
+        long tickNanos = rules.getTimeUnit().toNanos(rules.getTimeUnitsPerTick());
+        return Math.max(MIN_DEFAULT_UPDATE_INTERVAL_NANOS, tickNanos / 10);
+    }
+
+    private void tick() {
+        while (running) {
+            current = source.shiftedTime();
+            LockSupport.parkNanos(this, updateIntervalNanos);
+        }
+    }
+
+    @Override
+    public GenerationRules getRules() {
+        return source.getRules();
+    }
+
+    @Override
+    public long shiftedTime() {
+        if (running) {
+            return current;
+        }
+        return source.shiftedTime();
+    }
+
+    /**
+     * The next tick of the source clock is only seen once the background thread reads it,
+     * up to an update interval later.
+     */
+    @Override
+    public long nanosUntilNextTick() {
+        if (!running) {
+            return source.nanosUntilNextTick();
+        }
+        return source.nanosUntilNextTick() + updateIntervalNanos;
+    }
+
+    public long getUpdateIntervalNanos() {
+        return updateIntervalNanos;
+    }
+
+    /**
+     * Stop the background thread. The clock then reads the source clock on every call.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(ticker);
+    }
+
+    /**
+     * Threads are not serializable, restart a ticker for the deserialized clock.
+     */
+    private Object readResolve() {
+        return new CachedFlakeClock(source, updateIntervalNanos);
+    }
+}
@@ -0,0 +1,183 @@
+package com.sb.flake;
+
+import javax.management.JMException;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Periodically measures the drift of a {@link MonotonicFlakeClock} from wall time, and optionally corrects it.
+ * <p>
+ * A background daemon thread {@link MonotonicFlakeClock#getDriftNanos() measures the drift} at a fixed interval.
+ * The drift is readable through JMX, to alert before the timestamps of the IDs are too far from wall time.
+ * </p>
+ * <p>
+ * When correcting, the clock is {@link MonotonicFlakeClock#slew(long) moved forward} when it is behind wall time
+ * by more than the tolerance. Each check moves it forward by at most the maximum slew rate times the interval,
+ * so that a large drift is caught up in many small steps rather than in a single jump.
+ * A clock ahead of wall time is never moved back, since it would then generate timestamps it already used:
+ * it is only reported, and wall time catches up with it.
+ * </p>
+ * <p>
+ * The background thread runs until the monitor is {@link #close() closed}.
+ * </p>
+ */
+public class ClockDriftMonitor implements ClockDriftMonitorMXBean, AutoCloseable {
+    public static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(1);
+    public static final Duration DEFAULT_TOLERANCE = Duration.ofMillis(1);
+    /**
+     * At most a millisecond of correction per second.
+     */
+    public static final double DEFAULT_MAX_SLEW_RATE = 0.001;
+
+    private final MonotonicFlakeClock clock;
+    private final Duration interval;
+    private final boolean correcting;
+    private final long toleranceNanos;
+    private final long maxSlewPerCheckNanos;
+
+    private volatile long driftNanos;
+    private volatile long maxAbsoluteDriftNanos;
+    private volatile long checks;
+    private volatile long corrections;
+    private volatile boolean running;
+    private final Thread monitor;
+
+    /**
+     * Create a monitor that only measures the drift, and start its background thread.
+     * @param clock the clock to monitor
+     */
+    public ClockDriftMonitor(MonotonicFlakeClock clock) {
+        this(clock, DEFAULT_INTERVAL, false, DEFAULT_TOLERANCE, DEFAULT_MAX_SLEW_RATE);
+    }
+
+    /**
+     * Create a monitor and start its background thread.
+     * @param clock the clock to monitor
+     * @param interval how long to wait between two checks
+     * @param correcting whether to move the clock forward when it is behind wall time
+     * @param tolerance how far behind wall time the clock may be before it is corrected
+     * @param maxSlewRate how far the clock may be moved forward per unit of time, between 0 and 1
+     */
+    public ClockDriftMonitor(MonotonicFlakeClock clock, Duration interval, boolean correcting, Duration tolerance,
+                             double maxSlewRate) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("The interval must be positive, was: " + interval);
+        }
+        if (tolerance.isNegative()) {
+            throw new IllegalArgumentException("The tolerance cannot be negative, was: " + tolerance);
+        }
+        if (!(maxSlewRate > 0 && maxSlewRate <= 1)) {
+            throw new IllegalArgumentException("The maximum slew rate must be in (0, 1], was: " + maxSlewRate);
+        }
+        this.clock = clock;
+        this.interval = interval;
+        this.correcting = correcting;
+        this.toleranceNanos = tolerance.toNanos();
+        this.maxSlewPerCheckNanos = Math.max(1, (long) (interval.toNanos() * maxSlewRate));
+        this.running = true;
+        check();
+        this.monitor = new Thread(this::run, "sunflake-drift-monitor");
+        this.monitor.setDaemon(true);
+        this.monitor.start();
+    }
+
+    private void run() {
+        while (running) {
+            LockSupport.parkNanos(this, interval.toNanos());
+            if (running) {
+                check();
+            }
+        }
+    }
+
+    /**
+     * Measure the drift now, and correct it if this monitor is correcting.
+     * @return the drift measured before the correction, in nanoseconds
+     */
+    public synchronized long check() {
+        long drift = clock.getDriftNanos();
+        driftNanos = drift;
+        maxAbsoluteDriftNanos = Math.max(maxAbsoluteDriftNanos, Math.abs(drift));
+        checks++;
+        if (correcting && drift > toleranceNanos) {
+            clock.slew(Math.min(drift, maxSlewPerCheckNanos));
+            corrections++;
+        }
+        return drift;
+    }
+
+    @Override
+    public long getDriftNanos() {
+        return driftNanos;
+    }
+
+    @Override
+    public long getMaxAbsoluteDriftNanos() {
+        return maxAbsoluteDriftNanos;
+    }
+
+    @Override
+    public long getSlewNanos() {
+        return clock.getSlewNanos();
+    }
+
+    @Override
+    public long getChecks() {
+        return checks;
+    }
+
+    @Override
+    public long getCorrections() {
+        return corrections;
+    }
+
+    @Override
+    public boolean isCorrecting() {
+        return correcting;
+    }
+
+    public MonotonicFlakeClock getClock() {
+        return clock;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    /**
+     * Register this monitor in the platform MBean server.
+     * @param name the name of the monitor, unique among the registered monitors
+     * @return the name the monitor was registered under
+     * @throws JMException if the monitor could not be registered
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = objectName(name);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * Remove a monitor from the platform MBean server.
+     * @param name the name the monitor was registered with
+     * @throws JMException if no monitor is registered under that name
+     */
+    public static void unregister(String name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName(name));
+    }
+
+    private static ObjectName objectName(String name) throws MalformedObjectNameException {
+        return new ObjectName(FlakeGeneratorMetrics.DOMAIN + ":type=ClockDriftMonitor,name=" + ObjectName.quote(name));
+    }
+
+    /**
+     * Stop the background thread.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(monitor);
+    }
+}
@@ -0,0 +1,28 @@
+package com.sb.flake;
+
+/**
+ * Management interface of {@link ClockDriftMonitor}.
+ */
+public interface ClockDriftMonitorMXBean {
+    /**
+     * Get how far the wall clock was ahead of the clock at the last check.
+     * @return a drift in nanoseconds, negative when the clock is ahead of the wall clock
+     */
+    long getDriftNanos();
+
+    /**
+     * Get the largest drift, in absolute value, seen by a check.
+     */
+    long getMaxAbsoluteDriftNanos();
+
+    /**
+     * Get how far the clock was moved forward in total.
+     */
+    long getSlewNanos();
+
+    long getChecks();
+
+    long getCorrections();
+
+    boolean isCorrecting();
+}
@@ -1,5 +1,15 @@
 package com.sb.flake;
 
+/**
+ * Thrown when the sequence numbers of the current tick are exhausted and the generator was told not to wait for the next one.
+ * @see WaitStrategy#FAIL_FAST
+ */
 public class ExhaustedTimestampsException extends RuntimeException {
-    // TODO
+    public ExhaustedTimestampsException(String message) {
+        super(message);
+    }
+
+    public ExhaustedTimestampsException(GenerationRules rules) {
+        this("All " + (rules.SEQUENCE_MASK + 1) + " sequence numbers of the current tick are exhausted");
+    }
 }
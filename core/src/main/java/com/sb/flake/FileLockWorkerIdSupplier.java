@@ -0,0 +1,247 @@
+package com.sb.flake;
+
+import systems.helius.commons.SmartProperties;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Worker ID supplier that coordinates the processes of a host through a file lock per worker ID.
+ * <p>
+ * All the processes share a single file in a shared directory. A process owns the worker ID <code>n</code>
+ * as long as it holds the exclusive lock on the byte <code>n</code> of a region of the file reserved for locks.
+ * The operating system releases the locks of a process when it exits, even when it crashes,
+ * so the worker IDs of dead processes are immediately available again.
+ * </p>
+ * <p>
+ * To find a free worker ID without trying every lock, the start of the file holds a memory-mapped bitmap
+ * with a bit set for each worker ID in use. The bitmap is only a hint: a crashed process leaves its bit set,
+ * and concurrent updates may lose bits. The worker IDs marked free are tried first, then the ones marked in use.
+ * </p>
+ * <p>
+ * The worker ID is claimed on the first call to {@link #getWorkerId(int)}, and released when the supplier is
+ * {@link #close() closed} or when the JVM shuts down.
+ * </p>
+ * <p>
+ * The locks are held by the whole process, and on some systems closing any channel of a file releases all the locks
+ * of the process on the file. The suppliers of a JVM using the same file therefore share a single channel,
+ * only closed once none of them holds a lock.
+ * </p>
+ */
+public class FileLockWorkerIdSupplier implements WorkerIdSupplier, AutoCloseable {
+    private static final String PREFIX = SunflakeConfiguration.PREFIX + "workerId.";
+    /**
+     * (String [default: java.io.tmpdir]) Directory of the file shared by the processes of the host.
+     */
+    public static final String DIRECTORY = PREFIX + "lockDirectory";
+    /**
+     * (int [default: 1024]) How many worker IDs at most are shared between the processes of the host.
+     */
+    public static final String MAX_SLOTS = PREFIX + "maxSlots";
+    public static final String FILE_NAME = "sunflake-workers.lock";
+    public static final int DEFAULT_MAX_SLOTS = 1024;
+    /**
+     * Start of the region of the locks, far beyond the bitmap.
+     * Locks may extend past the end of the file, the file never grows to this size.
+     */
+    private static final long LOCK_REGION_OFFSET = 1L << 32;
+    /**
+     * The channels opened by the suppliers of this JVM, by real path of their file.
+     */
+    private static final Map<Path, SharedChannel> CHANNELS = new HashMap<>();
+
+    private final Path file;
+    private final int maxSlots;
+    private SharedChannel shared;
+    private FileChannel channel;
+    private MappedByteBuffer bitmap;
+    private FileLock lock;
+    private long workerId = -1;
+    private Thread shutdownHook;
+
+    public FileLockWorkerIdSupplier(Path directory) {
+        this(directory, DEFAULT_MAX_SLOTS);
+    }
+
+    /**
+     * @param directory the directory of the file shared by the processes of the host
+     * @param maxSlots how many worker IDs at most are shared between the processes of the host
+     */
+    public FileLockWorkerIdSupplier(Path directory, int maxSlots) {
+        if (maxSlots <= 0) {
+            throw new IllegalArgumentException("The maximum number of slots must be positive, was: " + maxSlots);
+        }
+        this.file = directory.resolve(FILE_NAME);
+        this.maxSlots = maxSlots;
+    }
+
+    public static WorkerIdSupplier getInstance(SmartProperties properties) {
+        String directory = properties.getProperty(DIRECTORY, System.getProperty("java.io.tmpdir"));
+        return new FileLockWorkerIdSupplier(Paths.get(directory), properties.getInt(MAX_SLOTS, DEFAULT_MAX_SLOTS));
+    }
+
+    @Override
+    public synchronized long getWorkerId(int maxLength) {
+        if (workerId == -1) {
+            try {
+                claim(maxLength >= Integer.SIZE - 1 ? maxSlots : Math.min(1 << maxLength, maxSlots));
+            } catch (IOException e) {
+                throw new InitializationException("Exception while claiming a worker ID in: " + file, e);
+            }
+        } else if (workerId >= 1L << maxLength) {
+            throw new IllegalStateException("The claimed worker ID " + workerId + " does not fit on " + maxLength + " bits");
+        }
+        return workerId;
+    }
+
+    private void claim(int slots) throws IOException {
+        openChannel();
+        int words = (slots + Long.SIZE - 1) / Long.SIZE;
+        try {
+            bitmap = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) words * Long.BYTES);
+        } catch (IOException e) {
+            closeChannel();
+            throw e;
+        }
+        bitmap.order(ByteOrder.nativeOrder());
+
+        // Processes starting at the same time start scanning at different places, to avoid fighting for the same slots
+        int startWord = (int) (ProcessHandle.current().pid() % words);
+        for (boolean markedFree : new boolean[]{true, false}) {
+            for (int i = 0; i < words; i++) {
+                int word = (startWord + i) % words;
+                long marked = bitmap.getLong(word * Long.BYTES);
+                long candidates = (markedFree ? ~marked : marked) & validSlots(word, slots);
+                while (candidates != 0) {
+                    int slot = word * Long.SIZE + Long.numberOfTrailingZeros(candidates);
+                    if (tryLock(slot)) {
+                        bitmap.putLong(word * Long.BYTES, bitmap.getLong(word * Long.BYTES) | 1L << (slot % Long.SIZE));
+                        workerId = slot;
+                        shutdownHook = new Thread(this::close, "sunflake-worker-id-release");
+                        Runtime.getRuntime().addShutdownHook(shutdownHook);
+                        return;
+                    }
+                    candidates &= candidates - 1;
+                }
+            }
+        }
+        closeChannel();
+        throw new InitializationException("All " + slots + " worker IDs of " + file + " are taken");
+    }
+
+    /**
+     * Get the mask of the slots of a word of the bitmap that are below the number of slots.
+     */
+    private static long validSlots(int word, int slots) {
+        int remaining = slots - word * Long.SIZE;
+        return remaining >= Long.SIZE ? -1L : (1L << remaining) - 1;
+    }
+
+    private boolean tryLock(int slot) throws IOException {
+        try {
+            lock = channel.tryLock(LOCK_REGION_OFFSET + slot, 1, false);
+            return lock != null;
+        } catch (OverlappingFileLockException e) {
+            return false; // Held by another supplier of this JVM
+        } catch (IOException e) {
+            closeChannel();
+            throw e;
+        }
+    }
+
+    /**
+     * Release the worker ID, so that another process can claim it.
+     * The generators using the worker ID must not generate IDs anymore.
+     */
+    @Override
+    public synchronized void close() {
+        if (workerId == -1) {
+            return;
+        }
+        int word = (int) (workerId / Long.SIZE);
+        bitmap.putLong(word * Long.BYTES, bitmap.getLong(word * Long.BYTES) & ~(1L << (workerId % Long.SIZE)));
+        try {
+            lock.release();
+        } catch (IOException ignored) {
+            // The lock is released when the channel is closed anyway
+        }
+        closeChannel();
+        workerId = -1;
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException ignored) {
+                // Already shutting down, the hook is running or about to
+            }
+        }
+    }
+
+    private void openChannel() throws IOException {
+        synchronized (CHANNELS) {
+            Files.createDirectories(file.getParent());
+            try {
+                Files.createFile(file);
+            } catch (FileAlreadyExistsException ignored) {
+                // Created by another supplier
+            }
+            Path realPath = file.toRealPath();
+            SharedChannel sharedChannel = CHANNELS.get(realPath);
+            if (sharedChannel == null) {
+                sharedChannel = new SharedChannel(realPath,
+                        FileChannel.open(realPath, StandardOpenOption.READ, StandardOpenOption.WRITE));
+                CHANNELS.put(realPath, sharedChannel);
+            }
+            sharedChannel.users++;
+            shared = sharedChannel;
+            channel = sharedChannel.channel;
+        }
+    }
+
+    /**
+     * Stop using the shared channel, and close it when no other supplier uses it, so no lock of this JVM remains.
+     */
+    private void closeChannel() {
+        synchronized (CHANNELS) {
+            if (--shared.users == 0) {
+                CHANNELS.remove(shared.realPath);
+                try {
+                    shared.channel.close();
+                } catch (IOException ignored) {
+                    // Nothing left to release
+                }
+            }
+        }
+        shared = null;
+        channel = null;
+        bitmap = null;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    private static final class SharedChannel {
+        private final Path realPath;
+        private final FileChannel channel;
+        /**
+         * How many suppliers use the channel, guarded by {@link #CHANNELS}.
+         */
+        private int users;
+
+        private SharedChannel(Path realPath, FileChannel channel) {
+            this.realPath = realPath;
+            this.channel = channel;
+        }
+    }
+}
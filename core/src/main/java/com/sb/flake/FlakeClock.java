@@ -0,0 +1,35 @@
+package com.sb.flake;
+
+import java.io.Serializable;
+
+/**
+ * Source of the timestamps of a {@link FlakeGenerator}.
+ * <p>
+ * A clock must never go backward: two successive calls to {@link #shiftedTime()}
+ * must return the same or an increasing timestamp.
+ * </p>
+ */
+public interface FlakeClock extends Serializable {
+    /**
+     * Get the rules that define the time unit, epoch and position of the timestamps of this clock.
+     * @return the rules of this clock
+     */
+    GenerationRules getRules();
+
+    /**
+     * Get the current timestamp in the time unit of the rules of this clock.
+     * The timestamp is already shifted to the correct location and masked by the sign mask of the rules.
+     * @return the current timestamp
+     */
+    long shiftedTime();
+
+    /**
+     * Get how long until {@link #shiftedTime()} returns a later timestamp.
+     * Used to schedule work for the next tick instead of waiting for it.
+     * The default implementation returns the length of a whole tick, an upper bound for clocks that tick on time.
+     * @return a delay in nanoseconds
+     */
+    default long nanosUntilNextTick() {
+        return getRules().getNanosPerTick();
+    }
+}
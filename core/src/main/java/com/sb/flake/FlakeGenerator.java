@@ -3,30 +3,48 @@ package com.sb.flake;
 import java.io.Serializable;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 
 public abstract class FlakeGenerator implements Serializable {
     protected final GenerationRules RULES;
     protected final long SHIFTED_WORKER_ID;
+    protected final FlakeClock CLOCK;
+    protected final WaitStrategy WAIT_STRATEGY;
+    /**
+     * Receiver of the events of this generator, or null when it is not monitored.
+     * Implementations must check for null before every notification, so that unmonitored generators pay nothing more.
+     */
+    protected final FlakeGeneratorListener LISTENER;
     /**
      * Time in the time unit of this generator since the real epoch when this generator was instantiated.
+     * @deprecated the timestamps come from {@link #CLOCK}, see {@link MonotonicFlakeClock#INSTANCE_START_TIME}.
+     * Kept for the subclasses that read it, it is the start time of the clock when the clock is a
+     * {@link MonotonicFlakeClock}.
      */
+    @Deprecated
     protected final long INSTANCE_START_TIME;
     /**
-     * To avoid issues with leap seconds and backward flowing time,
-     * this generator uses a monotonical clock.
-     * Since the relation between the epoch of the clock and wall-time is unknown,
-     * we maintain an internal start time of the clock to allow later establishing
-     * of the actual real timestamp with the following calculation:
-     * <p>
-     * <code>
-     *  toTimeUnit(CLOCK_TIME - CLOCK_EPOCH) + INSTANCE_START_TIME = TIMESTAMP
-     * </code>
-     * </p>
+     * Value of {@link System#nanoTime()} matching {@link #INSTANCE_START_TIME}.
+     * @deprecated the timestamps come from {@link #CLOCK}, see {@link MonotonicFlakeClock#CLOCK_EPOCH}.
      */
+    @Deprecated
     protected final long CLOCK_EPOCH;
 
     protected FlakeGenerator(long workerId, GenerationRules rules) {
+        this(workerId, new MonotonicFlakeClock(rules));
+    }
+
+    protected FlakeGenerator(long workerId, FlakeClock clock) {
+        this(workerId, clock, WaitStrategy.BUSY_SPIN);
+    }
+
+    protected FlakeGenerator(long workerId, FlakeClock clock, WaitStrategy waitStrategy) {
+        this(workerId, clock, waitStrategy, null);
+    }
+
+    protected FlakeGenerator(long workerId, FlakeClock clock, WaitStrategy waitStrategy, FlakeGeneratorListener listener) {
+        GenerationRules rules = clock.getRules();
         this.RULES = rules;
 
         long maskedId = workerId & rules.getWorkerIdMask();
@@ -35,31 +53,129 @@ public abstract class FlakeGenerator implements Serializable {
                     "WorkerId must be a " + rules.getWorkerSize() + " bits integer.");
         }
         this.SHIFTED_WORKER_ID = maskedId << rules.getWorkerIdShift();
+        this.CLOCK = clock;
+        this.WAIT_STRATEGY = Objects.requireNonNull(waitStrategy);
+        this.LISTENER = listener;
 
-        long msSinceEpoch = System.currentTimeMillis() - rules.getEpoch().toEpochMilli();
-        this.INSTANCE_START_TIME = rules.getTimeUnit().convert(msSinceEpoch, TimeUnit.MILLISECONDS) / rules.getTimeUnitsPerTick();
-        this.CLOCK_EPOCH = System.nanoTime();
+        if (clock instanceof MonotonicFlakeClock) {
+            this.INSTANCE_START_TIME = ((MonotonicFlakeClock) clock).INSTANCE_START_TIME;
+            this.CLOCK_EPOCH = ((MonotonicFlakeClock) clock).CLOCK_EPOCH;
+        } else {
+            long msSinceEpoch = System.currentTimeMillis() - rules.getEpoch().toEpochMilli();
+            this.INSTANCE_START_TIME = rules.getTimeUnit().convert(msSinceEpoch, TimeUnit.MILLISECONDS) / rules.getTimeUnitsPerTick();
+            this.CLOCK_EPOCH = System.nanoTime();
+        }
     }
 
     public GenerationRules getRules() {
         return RULES;
     }
 
+    public long getWorkerId() {
+        return SHIFTED_WORKER_ID >>> RULES.getWorkerIdShift();
+    }
+
     /**
      * Get the current timestamp in the time unit of this generator.
      * The timestamp is already shifted to the correct location.
      * @return the current timestamp
      */
     protected long shiftedMonotonicTime() {
-        long ts = System.nanoTime() - CLOCK_EPOCH;
-        ts = this.RULES.getTimeUnit().convert(ts, TimeUnit.NANOSECONDS);
-        ts /= this.RULES.TIME_UNITS_PER_TICK;
-        ts += INSTANCE_START_TIME;
-        ts <<= this.RULES.TIMESTAMP_SHIFT;
-        ts &= this.RULES.SIGN_MASK;
-        return ts;
+        return CLOCK.shiftedTime();
+    }
+
+    /**
+     * Report to the listener the IDs handed out by a successful compare-and-set on a packed state
+     * of a timestamp followed by a sequence number, and the ticks it completed.
+     * @param next the state before the compare-and-set
+     * @param slot the first slot reserved
+     * @param count how many slots were reserved
+     * @param sequenceMask the mask of the sequence number in the state
+     */
+    protected void notifyIssued(long next, long slot, long count, long sequenceMask) {
+        long capacity = sequenceMask + 1;
+        if (slot != next && (next & sequenceMask) != 0) {
+            // Moved on from a tick that was not exhausted
+            this.LISTENER.onTickCompleted(next & sequenceMask, capacity);
+        }
+        if (((slot + count) & sequenceMask) == 0) {
+            // Took the last sequence numbers of the tick
+            this.LISTENER.onTickCompleted(capacity, capacity);
+        }
+        this.LISTENER.onIdsIssued(count);
+    }
+
+    public FlakeClock getClock() {
+        return CLOCK;
+    }
+
+    public WaitStrategy getWaitStrategy() {
+        return WAIT_STRATEGY;
+    }
+
+    /**
+     * @return the listener of this generator, or null if it has none
+     */
+    public FlakeGeneratorListener getListener() {
+        return LISTENER;
     }
 
     public abstract long nextId();
 
+    /**
+     * Generate <code>n</code> IDs at once.
+     * @param n how many IDs to generate
+     * @return the generated IDs, in increasing order
+     * @see #nextIds(long[], int, int)
+     */
+    public long[] nextIds(int n) {
+        long[] ids = new long[n];
+        nextIds(ids, 0, n);
+        return ids;
+    }
+
+    /**
+     * Fill the given array with new IDs.
+     * @param dst where to write the IDs
+     * @see #nextIds(long[], int, int)
+     */
+    public void nextIds(long[] dst) {
+        nextIds(dst, 0, dst.length);
+    }
+
+    /**
+     * Fill a range of the given array with new IDs.
+     * <p>
+     * Implementations should reserve as many sequence numbers of the current tick as possible at once,
+     * only spilling into the following ticks when the sequence numbers of the current one are exhausted.
+     * The default implementation simply calls {@link #nextId()} once per ID.
+     * </p>
+     * @param dst where to write the IDs
+     * @param offset index of the first ID to write
+     * @param length how many IDs to write
+     */
+    public void nextIds(long[] dst, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, dst.length);
+        for (int i = offset; i < offset + length; i++) {
+            dst[i] = nextId();
+        }
+    }
+
+    /**
+     * Fill a range of the given array with new IDs of the current tick, without waiting for the following ticks.
+     * <p>
+     * Fewer IDs than requested are written when the sequence numbers of the current tick run out;
+     * the remaining ones can be requested again once the {@link FlakeClock#nanosUntilNextTick() next tick} starts.
+     * The default implementation cannot tell whether generating would wait, and always generates every ID
+     * with {@link #nextIds(long[], int, int)}.
+     * </p>
+     * @param dst where to write the IDs
+     * @param offset index of the first ID to write
+     * @param length how many IDs to write at most
+     * @return how many IDs were written, from <code>offset</code>
+     */
+    public int tryNextIds(long[] dst, int offset, int length) {
+        nextIds(dst, offset, length);
+        return length;
+    }
 }
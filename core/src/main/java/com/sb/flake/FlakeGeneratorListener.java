@@ -0,0 +1,40 @@
+package com.sb.flake;
+
+/**
+ * Receives the events of a generator, to monitor it.
+ * <p>
+ * Listeners are called on the threads generating the IDs, sometimes while the generator holds a lock,
+ * so they must be thread-safe and fast. Generators without a listener skip the notifications entirely.
+ * </p>
+ * @see FlakeGeneratorMetrics
+ */
+public interface FlakeGeneratorListener {
+    /**
+     * IDs were handed out.
+     * @param count how many
+     */
+    void onIdsIssued(long count);
+
+    /**
+     * A caller found the sequence numbers of the current tick exhausted, and is about to wait for the next tick.
+     */
+    void onSequenceExhausted();
+
+    /**
+     * A caller finished waiting for the next tick.
+     * @param waitedNanos how long it waited, in nanoseconds
+     */
+    void onWaitCompleted(long waitedNanos);
+
+    /**
+     * A caller lost a race against another caller: it had to retry, or to wait for the lock of the generator.
+     */
+    void onContention();
+
+    /**
+     * A tick in which IDs were handed out is over.
+     * @param used how many sequence numbers of the tick were used
+     * @param capacity how many sequence numbers a tick has
+     */
+    void onTickCompleted(long used, long capacity);
+}
@@ -0,0 +1,148 @@
+package com.sb.flake;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A listener that aggregates the events of generators into counters, readable through JMX.
+ * <p>
+ * The counters are striped adders, so that generating threads do not contend on them.
+ * A single instance can listen to several generators, and then reports their sum.
+ * </p>
+ */
+public class FlakeGeneratorMetrics implements FlakeGeneratorListener, FlakeGeneratorMetricsMXBean {
+    public static final String DOMAIN = "com.sb.flake";
+    private static final int N_UTILIZATION_BUCKETS = 11;
+
+    private final LongAdder idsIssued = new LongAdder();
+    private final LongAdder sequenceExhaustions = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+    private final LongAdder contentions = new LongAdder();
+    private final LongAdder completedTicks = new LongAdder();
+    /**
+     * Sum of the utilization of the completed ticks, in millionths.
+     */
+    private final LongAdder utilizationMillionths = new LongAdder();
+    private final LongAdder[] utilizationHistogram = new LongAdder[N_UTILIZATION_BUCKETS];
+
+    public FlakeGeneratorMetrics() {
+        for (int i = 0; i < N_UTILIZATION_BUCKETS; i++) {
+            utilizationHistogram[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void onIdsIssued(long count) {
+        idsIssued.add(count);
+    }
+
+    @Override
+    public void onSequenceExhausted() {
+        sequenceExhaustions.increment();
+    }
+
+    @Override
+    public void onWaitCompleted(long waitedNanos) {
+        totalWaitNanos.add(waitedNanos);
+        maxWaitNanos.accumulate(waitedNanos);
+    }
+
+    @Override
+    public void onContention() {
+        contentions.increment();
+    }
+
+    @Override
+    public void onTickCompleted(long used, long capacity) {
+        completedTicks.increment();
+        utilizationMillionths.add(used * 1_000_000 / capacity);
+        utilizationHistogram[(int) (used * (N_UTILIZATION_BUCKETS - 1) / capacity)].increment();
+    }
+
+    @Override
+    public long getIdsIssued() {
+        return idsIssued.sum();
+    }
+
+    @Override
+    public long getSequenceExhaustions() {
+        return sequenceExhaustions.sum();
+    }
+
+    @Override
+    public long getTotalWaitNanos() {
+        return totalWaitNanos.sum();
+    }
+
+    @Override
+    public long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+
+    @Override
+    public long getContentions() {
+        return contentions.sum();
+    }
+
+    @Override
+    public long getCompletedTicks() {
+        return completedTicks.sum();
+    }
+
+    @Override
+    public long[] getTickUtilizationHistogram() {
+        long[] histogram = new long[N_UTILIZATION_BUCKETS];
+        for (int i = 0; i < N_UTILIZATION_BUCKETS; i++) {
+            histogram[i] = utilizationHistogram[i].sum();
+        }
+        return histogram;
+    }
+
+    @Override
+    public double getAverageTickUtilization() {
+        long ticks = completedTicks.sum();
+        return ticks == 0 ? 0 : utilizationMillionths.sum() / 1_000_000.0 / ticks;
+    }
+
+    @Override
+    public void reset() {
+        idsIssued.reset();
+        sequenceExhaustions.reset();
+        totalWaitNanos.reset();
+        maxWaitNanos.reset();
+        contentions.reset();
+        completedTicks.reset();
+        utilizationMillionths.reset();
+        for (LongAdder bucket : utilizationHistogram) {
+            bucket.reset();
+        }
+    }
+
+    /**
+     * Register these metrics in the platform MBean server.
+     * @param name the name of the metrics, unique among the registered metrics
+     * @return the name the metrics were registered under
+     * @throws JMException if the metrics could not be registered
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = objectName(name);
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    /**
+     * Remove metrics from the platform MBean server.
+     * @param name the name the metrics were registered with
+     * @throws JMException if no metrics are registered under that name
+     */
+    public static void unregister(String name) throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName(name));
+    }
+
+    private static ObjectName objectName(String name) throws MalformedObjectNameException {
+        return new ObjectName(DOMAIN + ":type=FlakeGenerator,name=" + ObjectName.quote(name));
+    }
+}
@@ -0,0 +1,32 @@
+package com.sb.flake;
+
+/**
+ * Management interface of {@link FlakeGeneratorMetrics}.
+ */
+public interface FlakeGeneratorMetricsMXBean {
+    long getIdsIssued();
+
+    long getSequenceExhaustions();
+
+    long getTotalWaitNanos();
+
+    long getMaxWaitNanos();
+
+    long getContentions();
+
+    long getCompletedTicks();
+
+    /**
+     * Get how many completed ticks used each tenth of their sequence numbers.
+     * Index <code>i</code> counts the ticks that used from <code>i * 10%</code> (inclusive)
+     * to <code>(i + 1) * 10%</code> (exclusive) of their sequence numbers, the last index counts the ticks that used all of them.
+     */
+    long[] getTickUtilizationHistogram();
+
+    /**
+     * Get the average ratio of the sequence numbers used by the completed ticks, between 0 and 1.
+     */
+    double getAverageTickUtilization();
+
+    void reset();
+}
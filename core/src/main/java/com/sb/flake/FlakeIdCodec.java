@@ -0,0 +1,285 @@
+package com.sb.flake;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Compact text encodings of IDs, sortable like the IDs they encode.
+ * <p>
+ * An ID is encoded as an unsigned 64-bit number, always with the same number of digits, padded with zeros.
+ * The digits of the alphabets are in ASCII order, so comparing two encoded IDs character by character,
+ * as binary collations, {@link String#compareTo(String)} and URL-safe file names do, orders them like
+ * {@link Long#compareUnsigned(long, long)} orders the IDs: by timestamp first.
+ * </p>
+ * <p>
+ * Besides the methods returning strings, every encoding can write to and read from a caller's <code>char[]</code>,
+ * <code>byte[]</code> (as ASCII) or {@link ByteBuffer} without allocating anything, to write the IDs straight to
+ * the output of a serializer.
+ * </p>
+ */
+public enum FlakeIdCodec {
+    /**
+     * <a href="https://www.crockford.com/base32.html">Crockford's Base32</a>, 13 characters.
+     * Case-insensitive when decoding, and decodes <code>I</code> and <code>L</code> as <code>1</code>,
+     * and <code>O</code> as <code>0</code>. Encodes in upper case.
+     */
+    BASE32_CROCKFORD("0123456789ABCDEFGHJKMNPQRSTVWXYZ", 13) {
+        @Override
+        public int encode(long id, char[] dst, int offset) {
+            Objects.checkFromIndexSize(offset, 13, dst.length);
+            for (int i = offset + 12; i >= offset; i--) {
+                dst[i] = (char) ALPHABET[(int) id & 31];
+                id >>>= 5;
+            }
+            return offset + 13;
+        }
+
+        @Override
+        public int encode(long id, byte[] dst, int offset) {
+            Objects.checkFromIndexSize(offset, 13, dst.length);
+            for (int i = offset + 12; i >= offset; i--) {
+                dst[i] = ALPHABET[(int) id & 31];
+                id >>>= 5;
+            }
+            return offset + 13;
+        }
+
+        @Override
+        void encodeAbsolute(long id, ByteBuffer dst, int index) {
+            for (int i = index + 12; i >= index; i--) {
+                dst.put(i, ALPHABET[(int) id & 31]);
+                id >>>= 5;
+            }
+        }
+    },
+    /**
+     * Base62 with the digits, the upper case and the lower case letters, 11 characters.
+     * Case-sensitive: the encoded IDs only sort like the IDs with a case-sensitive comparison.
+     */
+    BASE62("0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz", 11) {
+        @Override
+        public int encode(long id, char[] dst, int offset) {
+            Objects.checkFromIndexSize(offset, 11, dst.length);
+            // The first division is unsigned, then the quotient is positive and plain divisions by a constant apply
+            long quotient = Long.divideUnsigned(id, 62);
+            dst[offset + 10] = (char) ALPHABET[(int) (id - quotient * 62)];
+            id = quotient;
+            for (int i = offset + 9; i >= offset; i--) {
+                quotient = id / 62;
+                dst[i] = (char) ALPHABET[(int) (id - quotient * 62)];
+                id = quotient;
+            }
+            return offset + 11;
+        }
+
+        @Override
+        public int encode(long id, byte[] dst, int offset) {
+            Objects.checkFromIndexSize(offset, 11, dst.length);
+            long quotient = Long.divideUnsigned(id, 62);
+            dst[offset + 10] = ALPHABET[(int) (id - quotient * 62)];
+            id = quotient;
+            for (int i = offset + 9; i >= offset; i--) {
+                quotient = id / 62;
+                dst[i] = ALPHABET[(int) (id - quotient * 62)];
+                id = quotient;
+            }
+            return offset + 11;
+        }
+
+        @Override
+        void encodeAbsolute(long id, ByteBuffer dst, int index) {
+            long quotient = Long.divideUnsigned(id, 62);
+            dst.put(index + 10, ALPHABET[(int) (id - quotient * 62)]);
+            id = quotient;
+            for (int i = index + 9; i >= index; i--) {
+                quotient = id / 62;
+                dst.put(i, ALPHABET[(int) (id - quotient * 62)]);
+                id = quotient;
+            }
+        }
+    };
+
+    private static final int INVALID = -1;
+
+    final byte[] ALPHABET;
+    private final int LENGTH;
+    private final long BASE;
+    /**
+     * Value of each ASCII character, or {@link #INVALID}.
+     */
+    private final byte[] DIGITS;
+
+    FlakeIdCodec(String alphabet, int length) {
+        this.ALPHABET = new byte[alphabet.length()];
+        this.LENGTH = length;
+        this.BASE = alphabet.length();
+        this.DIGITS = new byte[128];
+        Arrays.fill(DIGITS, (byte) INVALID);
+        for (int i = 0; i < alphabet.length(); i++) {
+            ALPHABET[i] = (byte) alphabet.charAt(i);
+            DIGITS[alphabet.charAt(i)] = (byte) i;
+        }
+        if (alphabet.length() == 32) {
+            // Crockford's decoding is case-insensitive, and tolerates the letters that look like digits
+            for (int i = 10; i < alphabet.length(); i++) {
+                DIGITS[Character.toLowerCase(alphabet.charAt(i))] = (byte) i;
+            }
+            DIGITS['I'] = DIGITS['i'] = DIGITS['L'] = DIGITS['l'] = 1;
+            DIGITS['O'] = DIGITS['o'] = 0;
+        }
+    }
+
+    /**
+     * Get how many characters every encoded ID has.
+     */
+    public int getLength() {
+        return LENGTH;
+    }
+
+    /**
+     * Encode an ID as a string.
+     * @param id the ID, encoded as an unsigned number
+     * @return the encoded ID, of {@link #getLength()} characters
+     */
+    public String encode(long id) {
+        char[] chars = new char[LENGTH];
+        encode(id, chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * Write the characters of an encoded ID.
+     * @param id the ID, encoded as an unsigned number
+     * @param dst where to write the {@link #getLength()} characters
+     * @param offset index of the first character
+     * @return the index following the last character written
+     */
+    public abstract int encode(long id, char[] dst, int offset);
+
+    /**
+     * Write the ASCII characters of an encoded ID.
+     * @param id the ID, encoded as an unsigned number
+     * @param dst where to write the {@link #getLength()} characters
+     * @param offset index of the first character
+     * @return the index following the last character written
+     */
+    public abstract int encode(long id, byte[] dst, int offset);
+
+    /**
+     * Write the ASCII characters of an encoded ID at the position of a buffer, and move the position past them.
+     * @param id the ID, encoded as an unsigned number
+     * @param dst where to write the {@link #getLength()} characters
+     * @throws BufferOverflowException if fewer than {@link #getLength()} bytes remain in the buffer
+     */
+    public void encode(long id, ByteBuffer dst) {
+        int position = dst.position();
+        if (dst.remaining() < LENGTH) {
+            throw new BufferOverflowException();
+        }
+        if (dst.hasArray()) {
+            encode(id, dst.array(), dst.arrayOffset() + position);
+        } else {
+            encodeAbsolute(id, dst, position);
+        }
+        dst.position(position + LENGTH);
+    }
+
+    /**
+     * Write the characters of an encoded ID from an index of a buffer, without moving its position.
+     */
+    abstract void encodeAbsolute(long id, ByteBuffer dst, int index);
+
+    /**
+     * Decode an ID.
+     * @param src exactly the characters of an encoded ID
+     * @return the ID
+     * @throws NumberFormatException if the characters are not an encoded ID
+     */
+    public long decode(CharSequence src) {
+        if (src.length() != LENGTH) {
+            throw new NumberFormatException("An encoded ID has " + LENGTH + " characters, was: \"" + src + "\"");
+        }
+        long id = 0;
+        for (int i = 0; i < LENGTH - 1; i++) {
+            id = id * BASE + digit(src.charAt(i));
+        }
+        return lastDigit(id, digit(src.charAt(LENGTH - 1)));
+    }
+
+    /**
+     * Decode an ID from characters.
+     * @param src the characters of an encoded ID
+     * @param offset index of the first character, followed by the others
+     * @return the ID
+     * @throws NumberFormatException if the characters are not an encoded ID
+     */
+    public long decode(char[] src, int offset) {
+        Objects.checkFromIndexSize(offset, LENGTH, src.length);
+        long id = 0;
+        for (int i = offset; i < offset + LENGTH - 1; i++) {
+            id = id * BASE + digit(src[i]);
+        }
+        return lastDigit(id, digit(src[offset + LENGTH - 1]));
+    }
+
+    /**
+     * Decode an ID from ASCII characters.
+     * @param src the characters of an encoded ID
+     * @param offset index of the first character, followed by the others
+     * @return the ID
+     * @throws NumberFormatException if the characters are not an encoded ID
+     */
+    public long decode(byte[] src, int offset) {
+        Objects.checkFromIndexSize(offset, LENGTH, src.length);
+        long id = 0;
+        for (int i = offset; i < offset + LENGTH - 1; i++) {
+            id = id * BASE + digit(src[i]);
+        }
+        return lastDigit(id, digit(src[offset + LENGTH - 1]));
+    }
+
+    /**
+     * Decode an ID from the ASCII characters at the position of a buffer, and move the position past them.
+     * @param src the characters of an encoded ID
+     * @return the ID
+     * @throws BufferUnderflowException if fewer than {@link #getLength()} bytes remain in the buffer
+     * @throws NumberFormatException if the characters are not an encoded ID
+     */
+    public long decode(ByteBuffer src) {
+        int position = src.position();
+        if (src.remaining() < LENGTH) {
+            throw new BufferUnderflowException();
+        }
+        long id = 0;
+        for (int i = position; i < position + LENGTH - 1; i++) {
+            id = id * BASE + digit(src.get(i));
+        }
+        id = lastDigit(id, digit(src.get(position + LENGTH - 1)));
+        src.position(position + LENGTH);
+        return id;
+    }
+
+    private int digit(int c) {
+        int digit = c >= 0 && c < DIGITS.length ? DIGITS[c] : INVALID;
+        if (digit == INVALID) {
+            throw new NumberFormatException("Invalid character for " + this + ": '" + (char) c + "'");
+        }
+        return digit;
+    }
+
+    /**
+     * Add the last digit, the only one whose addition can overflow an unsigned long:
+     * all the digits but the last fit in 60 bits.
+     */
+    private long lastDigit(long id, int digit) {
+        long shifted = id * BASE;
+        long result = shifted + digit;
+        if (Math.multiplyHigh(id, BASE) != 0 || Long.compareUnsigned(result, shifted) < 0) {
+            throw new NumberFormatException("The encoded ID is too large for " + this);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,175 @@
+package com.sb.flake;
+
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A publisher of new IDs, that never blocks waiting for the next tick.
+ * <p>
+ * Each subscriber receives its own infinite stream of IDs, only as many as it requested.
+ * IDs are generated in batches with {@link FlakeGenerator#tryNextIds(long[], int, int)}, on the thread that requests them.
+ * When the sequence numbers of the current tick run out, the emission of the remaining requested IDs is scheduled
+ * for the start of the next tick on the scheduler, instead of spinning until then.
+ * </p>
+ */
+public class FlakeIdPublisher implements Flow.Publisher<Long> {
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final FlakeGenerator generator;
+    private final ScheduledExecutorService scheduler;
+    private final int batchSize;
+
+    /**
+     * Create a publisher scheduling its delayed emissions on a shared daemon thread.
+     * @param generator the generator of the IDs
+     */
+    public FlakeIdPublisher(FlakeGenerator generator) {
+        this(generator, DefaultScheduler.INSTANCE, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Create a publisher.
+     * @param generator the generator of the IDs
+     * @param scheduler where to emit the IDs that could not be generated during the tick they were requested
+     * @param batchSize how many IDs to generate at once at most
+     */
+    public FlakeIdPublisher(FlakeGenerator generator, ScheduledExecutorService scheduler, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("The batch size must be positive, was: " + batchSize);
+        }
+        this.generator = Objects.requireNonNull(generator);
+        this.scheduler = Objects.requireNonNull(scheduler);
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Long> subscriber) {
+        Objects.requireNonNull(subscriber);
+        subscriber.onSubscribe(new IdSubscription(subscriber));
+    }
+
+    public FlakeGenerator getGenerator() {
+        return generator;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    private final class IdSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super Long> subscriber;
+        /**
+         * Only used by the thread that won the right to emit, see {@link #drain()}.
+         */
+        private final long[] buffer;
+        /**
+         * Requested IDs not emitted yet, Long.MAX_VALUE standing for an unbounded demand.
+         */
+        private final AtomicLong demand = new AtomicLong();
+        /**
+         * Calls to {@link #drain()} not yet handled; the thread that increments it from zero emits for all of them.
+         */
+        private final AtomicInteger pendingDrains = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        /**
+         * Error to signal once the subscription is cancelled, by the thread emitting, so that it never overlaps onNext.
+         * Written before {@link #cancelled}.
+         */
+        private volatile Throwable error;
+        private volatile boolean cancelled;
+
+        private IdSubscription(Flow.Subscriber<? super Long> subscriber) {
+            this.subscriber = subscriber;
+            this.buffer = new long[batchSize];
+        }
+
+        @Override
+        public void request(long n) {
+            if (cancelled) {
+                return;
+            }
+            if (n <= 0) {
+                error = new IllegalArgumentException("The number of requested IDs must be positive, was: " + n);
+                cancel();
+            } else {
+                demand.accumulateAndGet(n, (current, added) -> {
+                    long sum = current + added;
+                    return sum < 0 ? Long.MAX_VALUE : sum; // Saturate on overflow
+                });
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        private void drain() {
+            if (pendingDrains.getAndIncrement() != 0) {
+                return; // Another thread is emitting and will see the new demand
+            }
+            int missed = 1;
+            do {
+                long requested = demand.get();
+                long emitted = 0;
+                boolean exhausted = false;
+                try {
+                    while (emitted != requested && !cancelled) {
+                        int wanted = (int) Math.min(requested - emitted, buffer.length);
+                        int generated = generator.tryNextIds(buffer, 0, wanted);
+                        for (int i = 0; i < generated && !cancelled; i++) {
+                            subscriber.onNext(buffer[i]);
+                        }
+                        emitted += generated;
+                        if (generated < wanted) {
+                            exhausted = true;
+                            break;
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    error = e;
+                    cancel();
+                }
+                if (cancelled) {
+                    // Never decrement pendingDrains again, so that nothing is emitted after the error
+                    Throwable e = error;
+                    if (e != null) {
+                        subscriber.onError(e);
+                    }
+                    return;
+                }
+                if (requested != Long.MAX_VALUE) {
+                    demand.addAndGet(-emitted);
+                }
+                if (exhausted) {
+                    scheduleNextTick();
+                }
+                missed = pendingDrains.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void scheduleNextTick() {
+            if (scheduled.compareAndSet(false, true)) {
+                scheduler.schedule(() -> {
+                    scheduled.set(false);
+                    drain();
+                }, generator.getClock().nanosUntilNextTick(), TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * Lazily started, so that publishers given their own scheduler never start this thread.
+     */
+    private static final class DefaultScheduler {
+        private static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sunflake-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
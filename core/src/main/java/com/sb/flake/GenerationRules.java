@@ -1,6 +1,8 @@
 package com.sb.flake;
 
 import java.io.Serializable;
+import java.math.BigInteger;
+import java.nio.LongBuffer;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
@@ -18,7 +20,12 @@ public class GenerationRules implements Serializable {
     protected final int TIMESTAMP_SIZE;
     protected final TimeUnit TIME_UNIT;
     protected final int TIME_UNITS_PER_TICK;
-    
+    /**
+     * How many of the most significant bits of the sequence number identify a lane.
+     * Lanes are only used by generators that partition their sequence space, such as {@link LaneFlakeGenerator}.
+     */
+    protected final int LANE_SIZE;
+
     protected final boolean ALLOW_USAGE_OF_SIGN_BIT;
     /**
      * Mask that when used with the AND operator on an ID
@@ -37,6 +44,25 @@ public class GenerationRules implements Serializable {
 
     protected final Instant EPOCH;
 
+    /**
+     * Length of a tick in nanoseconds, saturated at {@link Long#MAX_VALUE}.
+     */
+    protected final long NANOS_PER_TICK;
+    /**
+     * Magic number of the division-free conversion of nanoseconds to ticks,
+     * or zero when {@link #NANOS_PER_TICK} is a power of two and a shift is enough.
+     */
+    protected final long NANOS_TO_TICKS_MULTIPLIER;
+    /**
+     * Shift of the division-free conversion of nanoseconds to ticks.
+     */
+    protected final int NANOS_TO_TICKS_SHIFT;
+    /**
+     * Length of a tick in milliseconds, or zero if ticks are not made of whole milliseconds.
+     */
+    protected final long MILLIS_PER_TICK;
+    protected final long EPOCH_MILLIS;
+
     /**
      * Construct a GenerationRules instance.
      * Rules produced by this constructor do not allow the usage of the sign bit
@@ -75,6 +101,21 @@ public class GenerationRules implements Serializable {
      * @param timeUnitsPerTick how many time units are in a tick
      */
     public GenerationRules(int sequenceSize, int workerIdSize, int timestampSize, Instant epoch, boolean allowUsageOfSignBit, TimeUnit timeUnit, int timeUnitsPerTick) {
+        this(sequenceSize, workerIdSize, timestampSize, epoch, allowUsageOfSignBit, timeUnit, timeUnitsPerTick, 0);
+    }
+
+    /**
+     * Construct a GenerationRules instance.
+     * @param sequenceSize how many bits to attribute to the sequence number
+     * @param workerIdSize how many bits to attribute to the worker id (machine ID in Snowflake)
+     * @param timestampSize how many bits to attribute to the timestamp
+     * @param epoch from when are the ticks counting from
+     * @param allowUsageOfSignBit if the sign bit may be used for the timestamp
+     * @param timeUnit unit of time used to count timestamp increases
+     * @param timeUnitsPerTick how many time units are in a tick
+     * @param laneSize how many of the most significant bits of the sequence number identify a lane
+     */
+    public GenerationRules(int sequenceSize, int workerIdSize, int timestampSize, Instant epoch, boolean allowUsageOfSignBit, TimeUnit timeUnit, int timeUnitsPerTick, int laneSize) {
         this.SEQUENCE_SIZE = sequenceSize;
         this.WORKER_ID_SIZE = workerIdSize;
         this.TIMESTAMP_SIZE = timestampSize;
@@ -85,6 +126,9 @@ public class GenerationRules implements Serializable {
             this.SIGN_MASK = ~(1L << 63);
         }
         this.TIME_UNIT = timeUnit;
+        if (timeUnitsPerTick <= 0) {
+            throw new IllegalArgumentException("There must be at least one time unit per tick, was: " + timeUnitsPerTick);
+        }
         this.TIME_UNITS_PER_TICK = timeUnitsPerTick;
 
         int totalBits = SEQUENCE_SIZE + WORKER_ID_SIZE + TIMESTAMP_SIZE;
@@ -92,6 +136,10 @@ public class GenerationRules implements Serializable {
         || (!allowUsageOfSignBit && totalBits >= Long.SIZE)) {
             throw new IllegalArgumentException("Total of bits is larger than 64 or would use the sign bit without being allowed!");
         }
+        if (laneSize < 0 || laneSize > sequenceSize) {
+            throw new IllegalArgumentException("The lane size must be between 0 and the sequence size (" + sequenceSize + "), was: " + laneSize);
+        }
+        this.LANE_SIZE = laneSize;
 
         this.SEQUENCE_MASK = (1L << SEQUENCE_SIZE) - 1;
         this.WORKER_ID_MASK = (1L << WORKER_ID_SIZE) - 1;
@@ -103,6 +151,33 @@ public class GenerationRules implements Serializable {
         this.SHIFTED_TIMESTAMP_MASK = TIMESTAMP_MASK << TIMESTAMP_SHIFT;
 
         this.EPOCH = epoch;
+
+        long nanosPerTick;
+        try {
+            nanosPerTick = Math.multiplyExact(timeUnit.toNanos(1), timeUnitsPerTick);
+        } catch (ArithmeticException e) {
+            nanosPerTick = Long.MAX_VALUE;
+        }
+        this.NANOS_PER_TICK = nanosPerTick;
+        if (Long.bitCount(nanosPerTick) == 1) {
+            this.NANOS_TO_TICKS_MULTIPLIER = 0;
+            this.NANOS_TO_TICKS_SHIFT = Long.numberOfTrailingZeros(nanosPerTick);
+        } else {
+            /* Round-up reciprocal: m = ceil(2^p / d) with p = 62 + ceil(log2(d)).
+             * Then m < 2^63 fits in a long, and m * d - 2^p < d <= 2^ceil(log2(d)),
+             * which makes floor(n * m / 2^p) equal to floor(n / d) for every n < 2^62 (146 years of nanoseconds).
+             * Since d is not a power of two, ceil(log2(d)) >= 2 and the shift of the high half is never negative.
+             */
+            int ceilLog2 = Long.SIZE - Long.numberOfLeadingZeros(nanosPerTick - 1);
+            int p = 62 + ceilLog2;
+            BigInteger[] division = BigInteger.ONE.shiftLeft(p).divideAndRemainder(BigInteger.valueOf(nanosPerTick));
+            BigInteger multiplier = division[1].signum() == 0 ? division[0] : division[0].add(BigInteger.ONE);
+            this.NANOS_TO_TICKS_MULTIPLIER = multiplier.longValueExact();
+            this.NANOS_TO_TICKS_SHIFT = p - Long.SIZE;
+        }
+        final long NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+        this.MILLIS_PER_TICK = nanosPerTick % NANOS_PER_MILLI == 0 ? nanosPerTick / NANOS_PER_MILLI : 0;
+        this.EPOCH_MILLIS = epoch.toEpochMilli();
     }
 
     /**
@@ -171,6 +246,10 @@ public class GenerationRules implements Serializable {
         return SEQUENCE_MASK;
     }
 
+    public int getLaneSize() {
+        return LANE_SIZE;
+    }
+
     public int getWorkerSize() {
         return WORKER_ID_SIZE;
     }
@@ -219,6 +298,56 @@ public class GenerationRules implements Serializable {
         return TIME_UNITS_PER_TICK;
     }
 
+    /**
+     * Get the length of a tick in nanoseconds.
+     * @return the length of a tick, or {@link Long#MAX_VALUE} if it does not fit in a long
+     */
+    public long getNanosPerTick() {
+        return NANOS_PER_TICK;
+    }
+
+    /**
+     * Get how many IDs a single worker can generate during a tick.
+     * @return the number of sequence numbers of a tick
+     */
+    public long getSequencesPerTick() {
+        return SEQUENCE_MASK + 1;
+    }
+
+    /**
+     * Get how many IDs a single worker can generate per second, at most.
+     * @return the sustained capacity of a worker
+     */
+    public double getMaxIdsPerSecond() {
+        return getSequencesPerTick() * (double) TimeUnit.SECONDS.toNanos(1) / NANOS_PER_TICK;
+    }
+
+    /**
+     * Get how many complete ticks fit in a duration.
+     * @param duration a positive duration, of less than about 146 years
+     * @return the number of complete ticks
+     */
+    public long ticksIn(Duration duration) {
+        return nanosToTicks(duration.toNanos());
+    }
+
+    /**
+     * Convert a duration in nanoseconds to a number of complete ticks.
+     * <p>
+     * This is equivalent to <code>getTimeUnit().convert(nanos, NANOSECONDS) / getTimeUnitsPerTick()</code>,
+     * but uses a shift when ticks last a power of two nanoseconds, or a multiplication by a precomputed reciprocal otherwise,
+     * instead of divisions.
+     * </p>
+     * @param nanos a duration in nanoseconds, between 0 and 2<sup>62</sup> (about 146 years)
+     * @return the number of complete ticks in that duration
+     */
+    public long nanosToTicks(long nanos) {
+        if (NANOS_TO_TICKS_MULTIPLIER == 0) {
+            return nanos >>> NANOS_TO_TICKS_SHIFT;
+        }
+        return Math.multiplyHigh(nanos, NANOS_TO_TICKS_MULTIPLIER) >>> NANOS_TO_TICKS_SHIFT;
+    }
+
     protected static int computeRemainingBits(int size1, int size2, boolean allowUsageOfSignBit) {
         return Long.SIZE - size1 - size2 - (allowUsageOfSignBit ? 0 : 1);
     }
@@ -230,15 +359,204 @@ public class GenerationRules implements Serializable {
      * @return the components of that snowflake.
      */
     public FlakeData parse(long flake) {
-        long[] components = isolateComponents(flake);
         // Convert a tick to microseconds since epoch
-        long sinceEpoch = components[0];
+        long sinceEpoch = timestampTicks(flake);
         sinceEpoch *= this.TIME_UNITS_PER_TICK; // Decompress if there were multiple units per tick
         sinceEpoch = TimeUnit.MICROSECONDS.convert(sinceEpoch, TIME_UNIT);
         Instant timestamp = this.EPOCH.plus(sinceEpoch, ChronoUnit.MICROS);
-        long workerId = components[1];
-        long sequenceNumber = components[2];
-        return new FlakeData(flake, timestamp, Duration.between(EPOCH, timestamp), workerId, sequenceNumber);
+        return new FlakeData(flake, timestamp, Duration.between(EPOCH, timestamp), workerId(flake), sequence(flake));
+    }
+
+    /**
+     * Parse a flake ID as if it were generated by this generator instance, without allocating anything.
+     * @param flake the flake id to parse
+     * @param destination where to write the components of the flake
+     * @return the destination
+     */
+    public MutableFlakeData parse(long flake, MutableFlakeData destination) {
+        destination.set(flake, timestampTicks(flake), epochMillis(flake), workerId(flake), sequence(flake));
+        return destination;
+    }
+
+    /**
+     * Extract the timestamp of a flake ID.
+     * @param flake the flake id to parse
+     * @return the number of ticks between the epoch and the generation of the flake
+     */
+    public long timestampTicks(long flake) {
+        return flake >> this.TIMESTAMP_SHIFT & this.TIMESTAMP_MASK;
+    }
+
+    /**
+     * Extract the timestamp of a flake ID as milliseconds since the Unix epoch, like {@link Instant#toEpochMilli()}.
+     * @param flake the flake id to parse
+     * @return the generation time of the flake, truncated to the millisecond
+     */
+    public long epochMillis(long flake) {
+        long ticks = timestampTicks(flake);
+        if (MILLIS_PER_TICK != 0) {
+            return ticks * MILLIS_PER_TICK + EPOCH_MILLIS;
+        }
+        return TimeUnit.MILLISECONDS.convert(ticks * this.TIME_UNITS_PER_TICK, TIME_UNIT) + EPOCH_MILLIS;
+    }
+
+    /**
+     * Extract the worker ID of a flake ID.
+     * @param flake the flake id to parse
+     * @return the worker id
+     */
+    public long workerId(long flake) {
+        return flake >> this.getWorkerIdShift() & this.WORKER_ID_MASK;
+    }
+
+    /**
+     * Extract the sequence number of a flake ID.
+     * @param flake the flake id to parse
+     * @return the sequence number
+     */
+    public long sequence(long flake) {
+        return flake & this.SEQUENCE_MASK;
+    }
+
+    /**
+     * Get the tick of an instant, clamped to the timestamps these rules can represent.
+     * Unlike the generators, which wrap around once the timestamps run out, instants past the last timestamp
+     * are clamped to it.
+     * @param instant the instant to convert
+     * @return the number of complete ticks between the epoch and the instant, between 0 and the timestamp mask
+     */
+    public long ticksAt(Instant instant) {
+        if (instant.isBefore(EPOCH)) {
+            return 0;
+        }
+        long units = TIME_UNIT.convert(Duration.between(EPOCH, instant)); // Saturates instead of overflowing
+        return Math.min(units / TIME_UNITS_PER_TICK, TIMESTAMP_MASK);
+    }
+
+    /**
+     * Get the smallest ID that can be generated at an instant, by any worker.
+     * <p>
+     * Every ID generated at or after the instant is greater than or equal to the returned ID,
+     * so a range of creation times translates to a range of IDs that an index on the IDs can scan.
+     * The instant is truncated to its tick.
+     * </p>
+     * @param instant the instant, clamped to the timestamps these rules can represent
+     * @return the ID with the tick of the instant, and all the other bits cleared
+     */
+    public long minId(Instant instant) {
+        return ticksAt(instant) << TIMESTAMP_SHIFT;
+    }
+
+    /**
+     * Get the largest ID that can be generated at an instant, by any worker.
+     * Every ID generated during the tick of the instant, or before it, is less than or equal to the returned ID.
+     * @param instant the instant, clamped to the timestamps these rules can represent
+     * @return the ID with the tick of the instant, and all the other bits set
+     * @see #minId(Instant)
+     */
+    public long maxId(Instant instant) {
+        return minId(instant) | (1L << TIMESTAMP_SHIFT) - 1;
+    }
+
+    /**
+     * Get the smallest ID that a worker can generate at an instant.
+     * @param instant the instant, clamped to the timestamps these rules can represent
+     * @param workerId the worker ID
+     * @return the ID with the tick of the instant, the worker ID, and a sequence number of zero
+     * @see #minId(Instant)
+     */
+    public long minId(Instant instant, long workerId) {
+        return minId(instant) | (workerId & WORKER_ID_MASK) << getWorkerIdShift();
+    }
+
+    /**
+     * Get the largest ID that a worker can generate at an instant.
+     * @param instant the instant, clamped to the timestamps these rules can represent
+     * @param workerId the worker ID
+     * @return the ID with the tick of the instant, the worker ID, and the last sequence number
+     * @see #minId(Instant)
+     */
+    public long maxId(Instant instant, long workerId) {
+        return minId(instant, workerId) | SEQUENCE_MASK;
+    }
+
+    /**
+     * Get the range of the IDs that can be generated between two instants, both included at the granularity of a tick.
+     * <p>
+     * The IDs of a range compare as signed longs, like database integers, unless the rules
+     * {@link #canUseSignBit() use the sign bit} and the range spans the middle of the timestamps.
+     * </p>
+     * @param from the first instant
+     * @param to the last instant
+     * @return the smallest and the largest ID, in an array of two
+     */
+    public long[] idRange(Instant from, Instant to) {
+        if (to.isBefore(from)) {
+            throw new IllegalArgumentException("The end of the range " + to + " is before its start " + from);
+        }
+        return new long[]{minId(from), maxId(to)};
+    }
+
+    /**
+     * Decode the components of a range of flakes into columns, using the Vector API when it is available.
+     * <p>
+     * The components of <code>flakes[i]</code> are written at index <code>i</code> of each column.
+     * A null column is skipped, which is cheaper than decoding a component that is not needed.
+     * The Vector API requires the <code>jdk.incubator.vector</code> module
+     * (<code>--add-modules jdk.incubator.vector</code>), without it a scalar loop is used.
+     * </p>
+     * @param flakes the flakes to decode
+     * @param offset index of the first flake to decode
+     * @param length how many flakes to decode
+     * @param timestamps where to write the timestamps, in ticks since the epoch, or null
+     * @param workerIds where to write the worker IDs, or null
+     * @param sequences where to write the sequence numbers, or null
+     */
+    public void decode(long[] flakes, int offset, int length, long[] timestamps, long[] workerIds, long[] sequences) {
+        Objects.checkFromIndexSize(offset, length, flakes.length);
+        checkColumn(timestamps, offset, length);
+        checkColumn(workerIds, offset, length);
+        checkColumn(sequences, offset, length);
+        BulkFlakeDecoder.Holder.INSTANCE.decode(this, flakes, offset, length, timestamps, workerIds, sequences, offset);
+    }
+
+    /**
+     * Decode the components of the remaining flakes of a buffer into columns, using the Vector API when it is available.
+     * <p>
+     * The components of the flake at <code>flakes.position() + i</code> are written at index <code>i</code> of each column.
+     * The position of the buffer is not modified. A null column is skipped.
+     * </p>
+     * @param flakes the flakes to decode
+     * @param timestamps where to write the timestamps, in ticks since the epoch, or null
+     * @param workerIds where to write the worker IDs, or null
+     * @param sequences where to write the sequence numbers, or null
+     * @see #decode(long[], int, int, long[], long[], long[])
+     */
+    public void decode(LongBuffer flakes, long[] timestamps, long[] workerIds, long[] sequences) {
+        final int length = flakes.remaining();
+        checkColumn(timestamps, 0, length);
+        checkColumn(workerIds, 0, length);
+        checkColumn(sequences, 0, length);
+        BulkFlakeDecoder decoder = BulkFlakeDecoder.Holder.INSTANCE;
+        if (flakes.hasArray()) {
+            decoder.decode(this, flakes.array(), flakes.arrayOffset() + flakes.position(), length,
+                    timestamps, workerIds, sequences, 0);
+        } else {
+            // Direct or read-only buffer, copy it by chunks to feed the decoder
+            final int CHUNK_SIZE = 512;
+            long[] chunk = new long[Math.min(CHUNK_SIZE, length)];
+            for (int done = 0; done < length; done += chunk.length) {
+                int n = Math.min(chunk.length, length - done);
+                flakes.get(flakes.position() + done, chunk, 0, n);
+                decoder.decode(this, chunk, 0, n, timestamps, workerIds, sequences, done);
+            }
+        }
+    }
+
+    private static void checkColumn(long[] column, int offset, int length) {
+        if (column != null) {
+            Objects.checkFromIndexSize(offset, length, column.length);
+        }
     }
 
     /**
@@ -249,9 +567,9 @@ public class GenerationRules implements Serializable {
      */
     public long[] isolateComponents(long flake) {
         return new long[] {
-                flake >> this.TIMESTAMP_SHIFT & this.TIMESTAMP_MASK,
-                flake >> this.getWorkerIdShift() & this.WORKER_ID_MASK,
-                flake & this.SEQUENCE_MASK
+                timestampTicks(flake),
+                workerId(flake),
+                sequence(flake)
         };
     }
 
@@ -263,6 +581,7 @@ public class GenerationRules implements Serializable {
                 && WORKER_ID_SIZE == that.WORKER_ID_SIZE
                 && TIMESTAMP_SIZE == that.TIMESTAMP_SIZE
                 && TIME_UNITS_PER_TICK == that.TIME_UNITS_PER_TICK
+                && LANE_SIZE == that.LANE_SIZE
                 && ALLOW_USAGE_OF_SIGN_BIT == that.ALLOW_USAGE_OF_SIGN_BIT
                 && SIGN_MASK == that.SIGN_MASK
                 && SEQUENCE_MASK == that.SEQUENCE_MASK
@@ -278,7 +597,7 @@ public class GenerationRules implements Serializable {
     @Override
     public int hashCode() {
         return Objects.hash(SEQUENCE_SIZE, WORKER_ID_SIZE, TIMESTAMP_SIZE,
-                TIME_UNIT, TIME_UNITS_PER_TICK, ALLOW_USAGE_OF_SIGN_BIT, SIGN_MASK,
+                TIME_UNIT, TIME_UNITS_PER_TICK, LANE_SIZE, ALLOW_USAGE_OF_SIGN_BIT, SIGN_MASK,
                 SEQUENCE_MASK, WORKER_ID_MASK, TIMESTAMP_MASK, TIMESTAMP_SHIFT,
                 SHIFTED_WORKER_ID_MASK, SHIFTED_TIMESTAMP_MASK, EPOCH);
     }
@@ -9,6 +9,7 @@ public class GenerationRulesBuilder {
     public static final int DEFAULT_TIMESTAMP_SIZE = 41;
     public static final boolean DEFAULT_ALLOW_USAGE_OF_SIGN_BIT = false;
     public static final TimeUnit DEFAULT_TIMEUNIT = TimeUnit.MILLISECONDS;
+    public static final int DEFAULT_LANE_SIZE = 0;
 
     private Integer sequenceSize;
     private Integer workerIdSize;
@@ -16,6 +17,7 @@ public class GenerationRulesBuilder {
     private boolean allowUsageOfSignBit = DEFAULT_ALLOW_USAGE_OF_SIGN_BIT;
     private TimeUnit timeUnit = DEFAULT_TIMEUNIT;
     private Integer timeUnitsPerTick;
+    private int laneSize = DEFAULT_LANE_SIZE;
     private Instant epoch;
 
     /**
@@ -43,6 +45,7 @@ public class GenerationRulesBuilder {
         this.allowUsageOfSignBit = rules.canUseSignBit();
         this.timeUnit = rules.getTimeUnit();
         this.timeUnitsPerTick = rules.getTimeUnitsPerTick();
+        this.laneSize = rules.getLaneSize();
         this.epoch = rules.getEpoch();
     }
 
@@ -76,6 +79,15 @@ public class GenerationRulesBuilder {
         return this;
     }
 
+    /**
+     * Set how many of the most significant bits of the sequence number identify a lane.
+     * @param laneSize between 0 and the size of the sequence number
+     */
+    public GenerationRulesBuilder setLaneSize(int laneSize) {
+        this.laneSize = laneSize;
+        return this;
+    }
+
     public GenerationRulesBuilder setEpoch(Instant epoch) {
         this.epoch = epoch;
         return this;
@@ -118,6 +130,6 @@ public class GenerationRulesBuilder {
 
 
         int rawTimeUnitsPerTick = this.timeUnitsPerTick != null ? this.timeUnitsPerTick : 1;
-        return new GenerationRules(rawSequenceSize, rawWorkerIdSize, rawTimestampSize, this.epoch, allowUsageOfSignBit, timeUnit, rawTimeUnitsPerTick);
+        return new GenerationRules(rawSequenceSize, rawWorkerIdSize, rawTimestampSize, this.epoch, allowUsageOfSignBit, timeUnit, rawTimeUnitsPerTick, laneSize);
     }
 }
\ No newline at end of file
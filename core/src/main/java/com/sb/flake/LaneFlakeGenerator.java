@@ -0,0 +1,255 @@
+package com.sb.flake;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Flake ID generator that splits its sequence numbers into per-thread lanes. This implementation is thread-safe.
+ * <p>
+ * The {@link GenerationRules#getLaneSize() lane size} most significant bits of the sequence number identify a lane,
+ * the remaining bits are a sequence number local to the lane. Each thread is assigned a lane once,
+ * so as long as there are no more threads than lanes, callers never write to the same memory.
+ * Each lane keeps its state in its own cache line and advances it with compare-and-set,
+ * the same way {@link LockFreeFlakeGenerator} does for the whole sequence.
+ * </p>
+ * <p>
+ * IDs are unique and increasing for a given thread, but since each lane runs out of sequence numbers on its own,
+ * IDs generated by different threads during the same tick are not ordered by generation time.
+ * </p>
+ * <p>
+ * A generator can also be pinned to a single lane, for all threads. Generators sharing a worker ID but pinned
+ * to different lanes then never generate the same ID, without sharing any state.
+ * </p>
+ */
+public class LaneFlakeGenerator extends FlakeGenerator {
+    /**
+     * Larger lane sizes would waste too much memory on mostly unused lanes.
+     */
+    public static final int MAX_LANE_SIZE = 10;
+    /**
+     * Distance in longs between the states of two lanes.
+     * 128 bytes keep each lane out of the cache lines of its neighbours, adjacent line prefetching included.
+     */
+    private static final int STRIDE = 16;
+
+    private static final AtomicInteger NEXT_THREAD_ORDINAL = new AtomicInteger();
+    private static final ThreadLocal<Integer> THREAD_ORDINAL = ThreadLocal.withInitial(NEXT_THREAD_ORDINAL::getAndIncrement);
+
+    private final int LANE_MASK;
+    private final int LOCAL_SEQUENCE_SIZE;
+    private final long LOCAL_SEQUENCE_MASK;
+    /**
+     * Lane of every thread, or -1 if each thread uses its own lane.
+     */
+    private final int FIXED_LANE;
+    /**
+     * Next free (timestamp, local sequence) slot of each lane, packed as
+     * <code>timestamp &lt;&lt; LOCAL_SEQUENCE_SIZE | local sequence</code>.
+     */
+    private final AtomicLongArray lanes;
+
+    public LaneFlakeGenerator(long workerId, GenerationRules rules) {
+        this(workerId, new MonotonicFlakeClock(rules));
+    }
+
+    public LaneFlakeGenerator(long workerId, FlakeClock clock) {
+        this(workerId, clock, -1);
+    }
+
+    /**
+     * Create a generator whose threads all use the same lane.
+     * @param workerId the worker ID
+     * @param clock the clock giving the timestamps
+     * @param fixedLane the lane, between 0 and <code>2^laneSize - 1</code>
+     */
+    public LaneFlakeGenerator(long workerId, FlakeClock clock, int fixedLane) {
+        this(workerId, clock, fixedLane, WaitStrategy.BUSY_SPIN);
+    }
+
+    /**
+     * Create a generator.
+     * @param workerId the worker ID
+     * @param clock the clock giving the timestamps
+     * @param fixedLane the lane of every thread, between 0 and <code>2^laneSize - 1</code>,
+     *                  or -1 for each thread to use its own lane
+     * @param waitStrategy how to wait when the sequence numbers of a lane are exhausted
+     */
+    public LaneFlakeGenerator(long workerId, FlakeClock clock, int fixedLane, WaitStrategy waitStrategy) {
+        this(workerId, clock, fixedLane, waitStrategy, null);
+    }
+
+    /**
+     * Create a generator.
+     * @param workerId the worker ID
+     * @param clock the clock giving the timestamps
+     * @param fixedLane the lane of every thread, between 0 and <code>2^laneSize - 1</code>,
+     *                  or -1 for each thread to use its own lane
+     * @param waitStrategy how to wait when the sequence numbers of a lane are exhausted
+     * @param listener the receiver of the events of this generator, or null
+     */
+    public LaneFlakeGenerator(long workerId, FlakeClock clock, int fixedLane, WaitStrategy waitStrategy, FlakeGeneratorListener listener) {
+        super(workerId, clock, waitStrategy, listener);
+        GenerationRules rules = clock.getRules();
+        if (rules.getLaneSize() > MAX_LANE_SIZE) {
+            throw new IllegalArgumentException("Lane size must be at most " + MAX_LANE_SIZE + " bits, was: " + rules.getLaneSize());
+        }
+        this.LANE_MASK = (1 << rules.getLaneSize()) - 1;
+        this.LOCAL_SEQUENCE_SIZE = rules.getSequenceSize() - rules.getLaneSize();
+        this.LOCAL_SEQUENCE_MASK = (1L << LOCAL_SEQUENCE_SIZE) - 1;
+        if (fixedLane < -1 || fixedLane > LANE_MASK) {
+            throw new IllegalArgumentException("The fixed lane must be between 0 and " + LANE_MASK + ", was: " + fixedLane);
+        }
+        this.FIXED_LANE = fixedLane;
+
+        // A pinned generator only ever uses one lane, it only needs the state of that lane
+        int nLanes = fixedLane == -1 ? LANE_MASK + 1 : 1;
+        this.lanes = new AtomicLongArray(nLanes * STRIDE);
+        long now = packedMonotonicTime();
+        for (int lane = 0; lane < nLanes; lane++) {
+            lanes.set(lane * STRIDE, now);
+        }
+    }
+
+    /**
+     * Get the lane of the calling thread.
+     */
+    protected int currentLane() {
+        return FIXED_LANE == -1 ? THREAD_ORDINAL.get() & LANE_MASK : FIXED_LANE;
+    }
+
+    /**
+     * Get the index of the state of a lane.
+     */
+    private int indexOf(int lane) {
+        return FIXED_LANE == -1 ? lane * STRIDE : 0;
+    }
+
+    /**
+     * Get the lane every thread uses, or -1 if each thread uses its own lane.
+     */
+    public int getFixedLane() {
+        return FIXED_LANE;
+    }
+
+    @Override
+    public long nextId() {
+        final int lane = currentLane();
+        final int index = indexOf(lane);
+        long now = packedMonotonicTime();
+        while (true) {
+            long next = lanes.get(index);
+            long slot = Long.compareUnsigned(next, now) > 0 ? next : now;
+            if (Long.compareUnsigned(slot & ~LOCAL_SEQUENCE_MASK, now) > 0) {
+                // All sequence numbers of the lane for the current tick were handed out
+                now = awaitTimestamp(slot & ~LOCAL_SEQUENCE_MASK);
+                continue;
+            }
+            if (lanes.compareAndSet(index, next, slot + 1)) {
+                if (this.LISTENER != null) {
+                    notifyIssued(next, slot, 1, LOCAL_SEQUENCE_MASK);
+                }
+                return unpack(lane, slot);
+            }
+            if (this.LISTENER != null) {
+                this.LISTENER.onContention();
+            }
+        }
+    }
+
+    @Override
+    public void nextIds(long[] dst, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, dst.length);
+        final int end = offset + length;
+        final int lane = currentLane();
+        final int index = indexOf(lane);
+        long now = packedMonotonicTime();
+        while (offset < end) {
+            long next = lanes.get(index);
+            long slot = Long.compareUnsigned(next, now) > 0 ? next : now;
+            long tick = slot & ~LOCAL_SEQUENCE_MASK;
+            if (Long.compareUnsigned(tick, now) > 0) {
+                now = awaitTimestamp(tick);
+                continue;
+            }
+            // Reserve the whole remaining range of the lane, or what is left to generate if it is smaller
+            long count = Math.min(end - offset, (tick | LOCAL_SEQUENCE_MASK) - slot + 1);
+            if (lanes.compareAndSet(index, next, slot + count)) {
+                long id = unpack(lane, slot);
+                for (long i = 0; i < count; i++) {
+                    dst[offset++] = id++;
+                }
+                if (this.LISTENER != null) {
+                    notifyIssued(next, slot, count, LOCAL_SEQUENCE_MASK);
+                }
+            } else if (this.LISTENER != null) {
+                this.LISTENER.onContention();
+            }
+        }
+    }
+
+    @Override
+    public int tryNextIds(long[] dst, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, dst.length);
+        final int start = offset;
+        final int end = offset + length;
+        final int lane = currentLane();
+        final int index = indexOf(lane);
+        final long now = packedMonotonicTime();
+        while (offset < end) {
+            long next = lanes.get(index);
+            long slot = Long.compareUnsigned(next, now) > 0 ? next : now;
+            long tick = slot & ~LOCAL_SEQUENCE_MASK;
+            if (Long.compareUnsigned(tick, now) > 0) {
+                break; // The sequence numbers of the current tick are exhausted
+            }
+            long count = Math.min(end - offset, (tick | LOCAL_SEQUENCE_MASK) - slot + 1);
+            if (lanes.compareAndSet(index, next, slot + count)) {
+                long id = unpack(lane, slot);
+                for (long i = 0; i < count; i++) {
+                    dst[offset++] = id++;
+                }
+                if (this.LISTENER != null) {
+                    notifyIssued(next, slot, count, LOCAL_SEQUENCE_MASK);
+                }
+            } else if (this.LISTENER != null) {
+                this.LISTENER.onContention();
+            }
+        }
+        return offset - start;
+    }
+
+    /**
+     * Get the current timestamp in the packed format of a lane, with a local sequence number of zero.
+     */
+    private long packedMonotonicTime() {
+        return shiftedMonotonicTime() >>> (this.RULES.WORKER_ID_SIZE + this.RULES.LANE_SIZE);
+    }
+
+    private long unpack(int lane, long slot) {
+        long id = (slot & ~LOCAL_SEQUENCE_MASK) << (this.RULES.WORKER_ID_SIZE + this.RULES.LANE_SIZE);
+        id &= this.RULES.SIGN_MASK;
+        id |= (long) lane << LOCAL_SEQUENCE_SIZE;
+        id |= slot & LOCAL_SEQUENCE_MASK;
+        id |= this.SHIFTED_WORKER_ID;
+        return id;
+    }
+
+    private long awaitTimestamp(long packedTimestamp) {
+        long start = 0;
+        if (this.LISTENER != null) {
+            this.LISTENER.onSequenceExhausted();
+            start = System.nanoTime();
+        }
+        long ts;
+        int iteration = 0;
+        do {
+            this.WAIT_STRATEGY.idle(iteration++, this.CLOCK);
+            ts = packedMonotonicTime();
+        } while (Long.compareUnsigned(ts, packedTimestamp) < 0);
+        if (this.LISTENER != null) {
+            this.LISTENER.onWaitCompleted(System.nanoTime() - start);
+        }
+        return ts;
+    }
+}
@@ -0,0 +1,11 @@
+package com.sb.flake;
+
+/**
+ * Thrown when generating an ID with a worker ID whose lease was lost, and that another process may be using.
+ * @see LeasedFlakeGenerator
+ */
+public class LeaseLostException extends RuntimeException {
+    public LeaseLostException(String message) {
+        super(message);
+    }
+}
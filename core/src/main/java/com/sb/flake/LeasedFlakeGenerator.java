@@ -0,0 +1,65 @@
+package com.sb.flake;
+
+import java.util.Objects;
+
+/**
+ * A Flake ID generator that refuses to generate IDs once the lease of its worker ID is lost.
+ * This implementation is as thread-safe as the generator it wraps.
+ * <p>
+ * The lease is checked once per call, before delegating to the source generator,
+ * so a batch of IDs is either generated entirely or not at all.
+ * </p>
+ */
+public class LeasedFlakeGenerator extends FlakeGenerator {
+    private final FlakeGenerator source;
+    private final LeasedWorkerIdSupplier lease;
+
+    /**
+     * Create a generator guarded by a lease.
+     * @param source the generator of the IDs
+     * @param lease the lease of the worker ID of the source generator
+     * @throws IllegalArgumentException if the source generator does not use the leased worker ID
+     */
+    public LeasedFlakeGenerator(FlakeGenerator source, LeasedWorkerIdSupplier lease) {
+        super(source.getWorkerId(), source.getClock(), source.getWaitStrategy(), source.getListener());
+        long leasedWorkerId = lease.getWorkerId(source.getRules().getWorkerSize());
+        if (leasedWorkerId != source.getWorkerId()) {
+            throw new IllegalArgumentException("The source generator uses the worker ID " + source.getWorkerId()
+                    + ", but the leased worker ID is " + leasedWorkerId);
+        }
+        this.source = source;
+        this.lease = Objects.requireNonNull(lease);
+    }
+
+    @Override
+    public long nextId() {
+        checkLease();
+        return source.nextId();
+    }
+
+    @Override
+    public void nextIds(long[] dst, int offset, int length) {
+        checkLease();
+        source.nextIds(dst, offset, length);
+    }
+
+    @Override
+    public int tryNextIds(long[] dst, int offset, int length) {
+        checkLease();
+        return source.tryNextIds(dst, offset, length);
+    }
+
+    private void checkLease() {
+        if (!lease.isLeaseValid()) {
+            throw new LeaseLostException("The lease of the worker ID " + getWorkerId() + " was lost");
+        }
+    }
+
+    public FlakeGenerator getSource() {
+        return source;
+    }
+
+    public LeasedWorkerIdSupplier getLease() {
+        return lease;
+    }
+}
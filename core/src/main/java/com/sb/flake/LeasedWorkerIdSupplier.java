@@ -0,0 +1,21 @@
+package com.sb.flake;
+
+/**
+ * A supplier of worker IDs that are only lent to this process for a limited time, and must be renewed to be kept.
+ * <p>
+ * Once the lease is lost, another process may claim the same worker ID, so the IDs generated with it
+ * are not guaranteed to be unique anymore. Wrap the generators using a leased worker ID in a
+ * {@link LeasedFlakeGenerator} to stop generating IDs as soon as the lease is lost.
+ * </p>
+ */
+public interface LeasedWorkerIdSupplier extends WorkerIdSupplier {
+    /**
+     * Check whether the worker ID is still owned by this process.
+     * <p>
+     * Called before generating IDs, so implementations must be cheap, typically a volatile read
+     * and a comparison with {@link System#nanoTime()}.
+     * </p>
+     * @return false before the worker ID is claimed, and once the lease expired or was taken by another process
+     */
+    boolean isLeaseValid();
+}
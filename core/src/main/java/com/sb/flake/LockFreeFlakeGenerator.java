@@ -0,0 +1,181 @@
+package com.sb.flake;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A Flake ID generator that support custom generation rules. This implementation is thread-safe and lock-free.
+ * <p>
+ * The timestamp and the sequence number are packed together in a single state word,
+ * laid out like an ID from which the worker ID bits were removed:
+ * <code>timestamp &lt;&lt; SEQUENCE_SIZE | sequence</code>.
+ * The state holds the next free slot; it is advanced with compare-and-set,
+ * so concurrent callers never block each other and a caller that loses the race simply retries.
+ * Because both fields share the same word, incrementing the last sequence number of a tick naturally
+ * rolls the state over to the first sequence number of the next tick.
+ * </p>
+ */
+public class LockFreeFlakeGenerator extends FlakeGenerator {
+
+    /**
+     * Next free (timestamp, sequence) slot, in the packed format described above.
+     */
+    private final AtomicLong state;
+    /**
+     * How far ahead of the clock the state may be handed out, in the packed format described above.
+     * Zero unless a subclass allows borrowing sequence numbers from future ticks.
+     */
+    private final long MAX_LEAD;
+
+    public LockFreeFlakeGenerator(long workerId, GenerationRules rules) {
+        this(workerId, new MonotonicFlakeClock(rules));
+    }
+
+    public LockFreeFlakeGenerator(long workerId, FlakeClock clock) {
+        this(workerId, clock, WaitStrategy.BUSY_SPIN);
+    }
+
+    public LockFreeFlakeGenerator(long workerId, FlakeClock clock, WaitStrategy waitStrategy) {
+        this(workerId, clock, waitStrategy, null);
+    }
+
+    public LockFreeFlakeGenerator(long workerId, FlakeClock clock, WaitStrategy waitStrategy, FlakeGeneratorListener listener) {
+        this(workerId, clock, waitStrategy, listener, 0);
+    }
+
+    /**
+     * Create a generator that hands out sequence numbers of future ticks instead of waiting, within a bound.
+     * @param maxLeadTicks how many ticks ahead of the clock IDs may be generated
+     */
+    protected LockFreeFlakeGenerator(long workerId, FlakeClock clock, WaitStrategy waitStrategy, FlakeGeneratorListener listener,
+                                     long maxLeadTicks) {
+        super(workerId, clock, waitStrategy, listener);
+        if (maxLeadTicks < 0 || maxLeadTicks > this.RULES.TIMESTAMP_MASK) {
+            throw new IllegalArgumentException("The maximum lead must be between 0 and " + this.RULES.TIMESTAMP_MASK + " ticks, was: " + maxLeadTicks);
+        }
+        this.MAX_LEAD = maxLeadTicks << this.RULES.SEQUENCE_SIZE;
+        this.state = new AtomicLong(packedMonotonicTime());
+    }
+
+    @Override
+    public long nextId() {
+        long now = packedMonotonicTime();
+        while (true) {
+            long next = state.get();
+            long slot = Long.compareUnsigned(next, now) > 0 ? next : now;
+            long tick = slot & ~this.RULES.SEQUENCE_MASK;
+            if (Long.compareUnsigned(tick, now + MAX_LEAD) > 0) {
+                // All sequence numbers of the current tick, and of the ticks it may borrow from, were handed out
+                now = awaitTimestamp(tick - MAX_LEAD);
+                continue;
+            }
+            if (state.compareAndSet(next, slot + 1)) {
+                if (this.LISTENER != null) {
+                    notifyIssued(next, slot, 1, this.RULES.SEQUENCE_MASK);
+                }
+                return unpack(slot);
+            }
+            if (this.LISTENER != null) {
+                this.LISTENER.onContention();
+            }
+        }
+    }
+
+    @Override
+    public void nextIds(long[] dst, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, dst.length);
+        final int end = offset + length;
+        long now = packedMonotonicTime();
+        while (offset < end) {
+            long next = state.get();
+            long slot = Long.compareUnsigned(next, now) > 0 ? next : now;
+            long tick = slot & ~this.RULES.SEQUENCE_MASK;
+            if (Long.compareUnsigned(tick, now + MAX_LEAD) > 0) {
+                now = awaitTimestamp(tick - MAX_LEAD);
+                continue;
+            }
+            // Reserve the whole remaining range of the tick, or what is left to generate if it is smaller
+            long count = Math.min(end - offset, (tick | this.RULES.SEQUENCE_MASK) - slot + 1);
+            if (state.compareAndSet(next, slot + count)) {
+                long id = unpack(slot);
+                for (long i = 0; i < count; i++) {
+                    dst[offset++] = id++;
+                }
+                if (this.LISTENER != null) {
+                    notifyIssued(next, slot, count, this.RULES.SEQUENCE_MASK);
+                }
+            } else if (this.LISTENER != null) {
+                this.LISTENER.onContention();
+            }
+        }
+    }
+
+    @Override
+    public int tryNextIds(long[] dst, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, dst.length);
+        final int start = offset;
+        final int end = offset + length;
+        final long now = packedMonotonicTime();
+        while (offset < end) {
+            long next = state.get();
+            long slot = Long.compareUnsigned(next, now) > 0 ? next : now;
+            long tick = slot & ~this.RULES.SEQUENCE_MASK;
+            if (Long.compareUnsigned(tick, now + MAX_LEAD) > 0) {
+                break; // The sequence numbers of the current tick are exhausted
+            }
+            long count = Math.min(end - offset, (tick | this.RULES.SEQUENCE_MASK) - slot + 1);
+            if (state.compareAndSet(next, slot + count)) {
+                long id = unpack(slot);
+                for (long i = 0; i < count; i++) {
+                    dst[offset++] = id++;
+                }
+                if (this.LISTENER != null) {
+                    notifyIssued(next, slot, count, this.RULES.SEQUENCE_MASK);
+                }
+            } else if (this.LISTENER != null) {
+                this.LISTENER.onContention();
+            }
+        }
+        return offset - start;
+    }
+
+    /**
+     * Get the next free slot, in the packed format of the state.
+     */
+    protected long nextSlot() {
+        return state.get();
+    }
+
+    /**
+     * Get the current timestamp in the packed format of the state, with a sequence number of zero.
+     */
+    protected long packedMonotonicTime() {
+        return shiftedMonotonicTime() >>> this.RULES.WORKER_ID_SIZE;
+    }
+
+    private long unpack(long slot) {
+        long id = (slot & ~this.RULES.SEQUENCE_MASK) << this.RULES.WORKER_ID_SIZE;
+        id &= this.RULES.SIGN_MASK;
+        id |= slot & this.RULES.SEQUENCE_MASK;
+        id |= this.SHIFTED_WORKER_ID;
+        return id;
+    }
+
+    private long awaitTimestamp(long packedTimestamp) {
+        long start = 0;
+        if (this.LISTENER != null) {
+            this.LISTENER.onSequenceExhausted();
+            start = System.nanoTime();
+        }
+        long ts;
+        int iteration = 0;
+        do {
+            this.WAIT_STRATEGY.idle(iteration++, this.CLOCK);
+            ts = packedMonotonicTime();
+        } while (Long.compareUnsigned(ts, packedTimestamp) < 0);
+        if (this.LISTENER != null) {
+            this.LISTENER.onWaitCompleted(System.nanoTime() - start);
+        }
+        return ts;
+    }
+}
@@ -0,0 +1,115 @@
+package com.sb.flake;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Default clock of the generators, reading {@link System#nanoTime()} on every call.
+ * <p>
+ * Since the monotonic clock and the wall clock run at slightly different rates, the timestamps of a long-lived clock
+ * drift away from wall time. {@link #getDriftNanos()} measures the drift, and {@link #slew(long)} moves the clock
+ * forward to catch up with wall time. See {@link ClockDriftMonitor} to do both periodically.
+ * </p>
+ */
+public class MonotonicFlakeClock implements FlakeClock {
+    private static final long serialVersionUID = 1L;
+    private static final VarHandle SLEW_NANOS;
+
+    static {
+        try {
+            SLEW_NANOS = MethodHandles.lookup().findVarHandle(MonotonicFlakeClock.class, "slewNanos", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    protected final GenerationRules RULES;
+    /**
+     * Time in the time unit of this clock since the real epoch when this clock was instantiated.
+     */
+    protected final long INSTANCE_START_TIME;
+    /**
+     * To avoid issues with leap seconds and backward flowing time,
+     * this clock uses a monotonical clock.
+     * Since the relation between the epoch of the clock and wall-time is unknown,
+     * we maintain an internal start time of the clock to allow later establishing
+     * of the actual real timestamp with the following calculation:
+     * <p>
+     * <code>
+     *  toTimeUnit(CLOCK_TIME - CLOCK_EPOCH + slewNanos) + INSTANCE_START_TIME = TIMESTAMP
+     * </code>
+     * </p>
+     */
+    protected final long CLOCK_EPOCH;
+    /**
+     * How far this clock was moved forward, in nanoseconds. Never decreases, so that the clock never goes backward.
+     */
+    private volatile long slewNanos;
+
+    public MonotonicFlakeClock(GenerationRules rules) {
+        this.RULES = rules;
+        long msSinceEpoch = System.currentTimeMillis() - rules.getEpoch().toEpochMilli();
+        this.INSTANCE_START_TIME = rules.getTimeUnit().convert(msSinceEpoch, TimeUnit.MILLISECONDS) / rules.getTimeUnitsPerTick();
+        this.CLOCK_EPOCH = System.nanoTime();
+    }
+
+    @Override
+    public GenerationRules getRules() {
+        return RULES;
+    }
+
+    @Override
+    public long shiftedTime() {
+        long ts = this.RULES.nanosToTicks(System.nanoTime() - CLOCK_EPOCH + slewNanos);
+        ts += INSTANCE_START_TIME;
+        ts <<= this.RULES.TIMESTAMP_SHIFT;
+        ts &= this.RULES.SIGN_MASK;
+        return ts;
+    }
+
+    @Override
+    public long nanosUntilNextTick() {
+        long elapsed = System.nanoTime() - CLOCK_EPOCH + slewNanos;
+        long ticks = this.RULES.nanosToTicks(elapsed);
+        return (ticks + 1) * this.RULES.NANOS_PER_TICK - elapsed;
+    }
+
+    /**
+     * Get how far the wall clock is ahead of this clock.
+     * <p>
+     * The drift includes the truncation of the start time of this clock to a whole tick,
+     * and the jitter of reading two clocks one after the other.
+     * </p>
+     * @return the drift in nanoseconds, negative when this clock is ahead of the wall clock
+     */
+    public long getDriftNanos() {
+        Instant wall = Instant.now();
+        long clockNanos = INSTANCE_START_TIME * this.RULES.NANOS_PER_TICK + (System.nanoTime() - CLOCK_EPOCH) + slewNanos;
+        Instant epoch = this.RULES.getEpoch();
+        long wallNanos = TimeUnit.SECONDS.toNanos(wall.getEpochSecond() - epoch.getEpochSecond()) + wall.getNano() - epoch.getNano();
+        return wallNanos - clockNanos;
+    }
+
+    /**
+     * Move this clock forward.
+     * The clock can only move forward, so that it never returns an earlier timestamp.
+     * @param nanos how far to move the clock forward, in nanoseconds
+     * @return how far the clock was moved forward in total since its creation, in nanoseconds
+     */
+    public long slew(long nanos) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("A clock can only be moved forward, was: " + nanos);
+        }
+        return (long) SLEW_NANOS.getAndAdd(this, nanos) + nanos;
+    }
+
+    /**
+     * Get how far this clock was moved forward in total since its creation.
+     * @return a duration in nanoseconds
+     */
+    public long getSlewNanos() {
+        return slewNanos;
+    }
+}
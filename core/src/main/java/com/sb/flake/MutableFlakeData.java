@@ -0,0 +1,60 @@
+package com.sb.flake;
+
+/**
+ * Reusable holder of the components of a flake, filled in place by {@link GenerationRules#parse(long, MutableFlakeData)}.
+ * <p>
+ * Unlike {@link FlakeData}, it only holds primitives, so parsing into an existing instance allocates nothing.
+ * Instances are not thread-safe.
+ * </p>
+ */
+public class MutableFlakeData {
+    private long flake;
+    private long timestampTicks;
+    private long epochMillis;
+    private long workerId;
+    private long sequenceNumber;
+
+    void set(long flake, long timestampTicks, long epochMillis, long workerId, long sequenceNumber) {
+        this.flake = flake;
+        this.timestampTicks = timestampTicks;
+        this.epochMillis = epochMillis;
+        this.workerId = workerId;
+        this.sequenceNumber = sequenceNumber;
+    }
+
+    public long getFlake() {
+        return flake;
+    }
+
+    /**
+     * @return the number of ticks between the epoch of the rules and the generation of the flake
+     */
+    public long getTimestampTicks() {
+        return timestampTicks;
+    }
+
+    /**
+     * @return the generation time of the flake in milliseconds since the Unix epoch
+     */
+    public long getEpochMillis() {
+        return epochMillis;
+    }
+
+    public long getWorkerId() {
+        return workerId;
+    }
+
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    @Override
+    public String toString() {
+        return "MutableFlakeData{" +
+                "timestampTicks=" + timestampTicks +
+                ", epochMillis=" + epochMillis +
+                ", workerId=" + workerId +
+                ", sequenceNumber=" + sequenceNumber +
+                '}';
+    }
+}
@@ -0,0 +1,250 @@
+package com.sb.flake;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A clock that persists a high-water mark of its timestamps, so that a restarted process never reuses them.
+ * <p>
+ * A process that restarts after the wall clock was set back, for example by an NTP step, would otherwise
+ * generate again the timestamps it already used before the restart. This clock keeps in a small memory-mapped file
+ * a mark that all the timestamps it returned are below. On creation, it waits for the source clock to pass
+ * the persisted mark, up to a maximum wait, and fails if it does not.
+ * </p>
+ * <p>
+ * Instead of writing every timestamp, the clock reserves a window of timestamps ahead of time: the end of the window
+ * is written and {@link MappedByteBuffer#force() forced} to the storage, then the timestamps of the window are returned
+ * at the cost of a volatile read and a comparison. A background daemon thread extends the window when the clock
+ * reaches its middle, so callers only write the mark themselves when the thread falls behind.
+ * </p>
+ * <p>
+ * When the clock is {@link #close() closed}, the mark is brought back to the current time, so that a clean restart
+ * does not wait. After a crash, a restart waits up to the length of the window.
+ * The mark is stored as nanoseconds since the Unix epoch, so it stays valid when the rules change.
+ * Each file must be used by a single clock at a time.
+ * </p>
+ */
+public class PersistentFlakeClock implements FlakeClock, AutoCloseable {
+    private static final long serialVersionUID = 1L;
+    public static final Duration DEFAULT_RESERVATION = Duration.ofSeconds(1);
+    public static final Duration DEFAULT_MAX_STARTUP_WAIT = Duration.ofSeconds(5);
+    /**
+     * Identifies the files of this clock, "SFHWM" followed by the version of the format.
+     */
+    private static final long MAGIC = 0x5346_4857_4D00_0001L;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int MARK_OFFSET = Long.BYTES;
+    private static final int FILE_SIZE = 2 * Long.BYTES;
+
+    private final FlakeClock source;
+    private final String file;
+    private final Duration reservation;
+    private final Duration maxStartupWait;
+    private final long reservationTicks;
+    private final long epochNanos;
+
+    private final transient FileChannel channel;
+    private final transient MappedByteBuffer buffer;
+    /**
+     * The shifted timestamps below are reserved: they are below the persisted mark.
+     * Compared unsigned, the timestamps may use the sign bit.
+     */
+    private volatile long limit;
+    private volatile boolean running;
+    private final transient Thread reserver;
+
+    public PersistentFlakeClock(FlakeClock source, Path file) {
+        this(source, file, DEFAULT_RESERVATION, DEFAULT_MAX_STARTUP_WAIT);
+    }
+
+    /**
+     * Create a persistent clock, wait for the source clock to pass the persisted mark, and start its background thread.
+     * @param source the clock giving the timestamps
+     * @param file where to persist the mark, created if missing
+     * @param reservation how far ahead of the source clock the mark is written
+     * @param maxStartupWait how long to wait at most for the source clock to pass the persisted mark
+     * @throws InitializationException if the source clock is still behind the persisted mark after the maximum wait,
+     * or if the file cannot be used
+     */
+    public PersistentFlakeClock(FlakeClock source, Path file, Duration reservation, Duration maxStartupWait) {
+        GenerationRules rules = source.getRules();
+        if (rules.ticksIn(reservation) < 2) {
+            throw new IllegalArgumentException("The reservation must last at least two ticks, was: " + reservation);
+        }
+        if (maxStartupWait.isNegative()) {
+            throw new IllegalArgumentException("The maximum startup wait cannot be negative, was: " + maxStartupWait);
+        }
+        this.source = source;
+        this.file = file.toString();
+        this.reservation = reservation;
+        this.maxStartupWait = maxStartupWait;
+        this.reservationTicks = rules.ticksIn(reservation);
+        this.epochNanos = TimeUnit.MILLISECONDS.toNanos(rules.getEpoch().toEpochMilli());
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, FILE_SIZE);
+        } catch (IOException e) {
+            throw new InitializationException("Exception while opening the high-water mark file: " + file, e);
+        }
+        awaitPersistedMark();
+        this.running = true;
+        reserve(ticks(source.shiftedTime()) + reservationTicks);
+        this.reserver = new Thread(this::run, "sunflake-high-water-mark");
+        this.reserver.setDaemon(true);
+        this.reserver.start();
+    }
+
+    private void awaitPersistedMark() {
+        if (buffer.getLong(MAGIC_OFFSET) != MAGIC) {
+            return; // New file
+        }
+        GenerationRules rules = source.getRules();
+        long markTicks = -Math.floorDiv(epochNanos - buffer.getLong(MARK_OFFSET), rules.getNanosPerTick()); // Rounded up
+        long deadline = System.nanoTime() + maxStartupWait.toNanos();
+        long behind;
+        while ((behind = markTicks - ticks(source.shiftedTime())) > 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                closeChannel();
+                throw new InitializationException("The clock is " + Duration.ofNanos(behind * rules.getNanosPerTick())
+                        + " behind the high-water mark persisted in " + file + ", the timestamps up to the mark may have been used already");
+            }
+            LockSupport.parkNanos(this, Math.min(remaining, behind * rules.getNanosPerTick()));
+        }
+    }
+
+    @Override
+    public long shiftedTime() {
+        long time = source.shiftedTime();
+        if (Long.compareUnsigned(time, limit) < 0) {
+            return time;
+        }
+        return reserveNow(time);
+    }
+
+    /**
+     * The background thread fell behind: reserve on the calling thread.
+     */
+    private synchronized long reserveNow(long time) {
+        if (!running) {
+            throw new IllegalStateException("The clock is closed");
+        }
+        if (Long.compareUnsigned(time, limit) >= 0) {
+            reserve(ticks(time) + reservationTicks);
+        }
+        return time;
+    }
+
+    private void run() {
+        long halfReservationNanos = reservationTicks / 2 * source.getRules().getNanosPerTick();
+        while (running) {
+            LockSupport.parkNanos(this, halfReservationNanos);
+            synchronized (this) {
+                long nowTicks = ticks(source.shiftedTime());
+                if (running && nowTicks + reservationTicks / 2 >= ticks(limit)) {
+                    reserve(nowTicks + reservationTicks);
+                }
+            }
+        }
+    }
+
+    /**
+     * Persist a new mark, then allow the timestamps below it.
+     * @param markTicks the first tick that may not be used
+     */
+    private synchronized void reserve(long markTicks) {
+        if (markTicks <= ticks(limit)) {
+            return;
+        }
+        persist(markTicks);
+        limit = markTicks << source.getRules().getTimestampShift();
+    }
+
+    private void persist(long markTicks) {
+        buffer.putLong(MARK_OFFSET, epochNanos + markTicks * source.getRules().getNanosPerTick());
+        buffer.putLong(MAGIC_OFFSET, MAGIC);
+        try {
+            buffer.force();
+        } catch (UncheckedIOException e) {
+            throw new IllegalStateException("Could not persist the high-water mark to " + file, e);
+        }
+    }
+
+    private long ticks(long shiftedTime) {
+        return shiftedTime >>> source.getRules().getTimestampShift();
+    }
+
+    @Override
+    public GenerationRules getRules() {
+        return source.getRules();
+    }
+
+    @Override
+    public long nanosUntilNextTick() {
+        return source.nanosUntilNextTick();
+    }
+
+    public FlakeClock getSource() {
+        return source;
+    }
+
+    public Path getFile() {
+        return Paths.get(file);
+    }
+
+    public Duration getReservation() {
+        return reservation;
+    }
+
+    /**
+     * Get the shifted timestamp below which timestamps can be returned without writing the mark.
+     */
+    public long getReservedLimit() {
+        return limit;
+    }
+
+    /**
+     * Stop the background thread, and bring the mark back to the current time.
+     * The clock cannot be used once closed.
+     */
+    @Override
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(reserver);
+        limit = 0;
+        // The source clock never goes backward, so every timestamp returned so far is at or below the current one
+        persist(ticks(source.shiftedTime()) + 1);
+        closeChannel();
+    }
+
+    private void closeChannel() {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // Nothing left to release
+        }
+    }
+
+    /**
+     * Files and threads are not serializable, reopen the file for the deserialized clock.
+     */
+    private Object readResolve() {
+        return new PersistentFlakeClock(source, Paths.get(file), reservation, maxStartupWait);
+    }
+}
@@ -0,0 +1,71 @@
+package com.sb.flake;
+
+/**
+ * A Flake ID generator that takes IDs from another generator in chunks, and hands them out from a per-thread pool.
+ * This implementation is thread-safe.
+ * <p>
+ * Each thread refills its own pool with a single call to {@link FlakeGenerator#nextIds(long[])} of the source generator,
+ * so the cost of the source generator is paid once per pool instead of once per ID.
+ * The IDs are unique, and increasing for a given thread. But an ID carries the timestamp of the refill of its pool,
+ * so IDs of different threads are only ordered by time at the granularity of the pools.
+ * The IDs left in the pool of a thread that stops generating are never used.
+ * </p>
+ */
+public class PooledFlakeGenerator extends FlakeGenerator {
+    private final FlakeGenerator source;
+    private final int poolSize;
+    private final transient ThreadLocal<Pool> pools;
+
+    /**
+     * Create a pooled generator.
+     * @param source the generator of the IDs
+     * @param poolSize how many IDs each thread takes from the source at once
+     */
+    public PooledFlakeGenerator(FlakeGenerator source, int poolSize) {
+        super(source.getWorkerId(), source.getClock(), source.getWaitStrategy());
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("The pool size must be positive, was: " + poolSize);
+        }
+        this.source = source;
+        this.poolSize = poolSize;
+        this.pools = ThreadLocal.withInitial(() -> new Pool(poolSize));
+    }
+
+    @Override
+    public long nextId() {
+        Pool pool = pools.get();
+        if (pool.next == pool.ids.length) {
+            source.nextIds(pool.ids);
+            pool.next = 0;
+        }
+        return pool.ids[pool.next++];
+    }
+
+    public FlakeGenerator getSource() {
+        return source;
+    }
+
+    public int getPoolSize() {
+        return poolSize;
+    }
+
+    /**
+     * Thread locals are not serializable, start with empty pools for the deserialized generator.
+     */
+    private Object readResolve() {
+        return new PooledFlakeGenerator(source, poolSize);
+    }
+
+    private static final class Pool {
+        private final long[] ids;
+        /**
+         * Index of the next ID to hand out, the pool is empty when it reaches the end of the array.
+         */
+        private int next;
+
+        private Pool(int size) {
+            this.ids = new long[size];
+            this.next = size;
+        }
+    }
+}
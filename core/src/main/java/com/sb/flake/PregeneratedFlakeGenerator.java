@@ -0,0 +1,223 @@
+package com.sb.flake;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A Flake ID generator that hands out IDs generated ahead of time by another generator. This implementation is thread-safe.
+ * <p>
+ * A background daemon thread fills an off-heap ring buffer with blocks of IDs from the source generator.
+ * Handing out an ID costs a single atomic increment of the ring index, plus two volatile reads.
+ * When the ring is empty, or when the ID read was overwritten by the refill thread while being read,
+ * the ID is taken directly from the source generator instead.
+ * </p>
+ * <p>
+ * IDs that stay in the ring longer than the staleness bound are discarded, so that the timestamps of the IDs
+ * handed out stay close to the time they are handed out.
+ * The IDs are unique, but because the ring and the source generator can both serve a caller,
+ * they are only roughly ordered by time.
+ * </p>
+ * <p>
+ * The background thread runs until the generator is {@link #close() closed}.
+ * </p>
+ */
+public class PregeneratedFlakeGenerator extends FlakeGenerator implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+    public static final Duration DEFAULT_MAX_AGE = Duration.ofMillis(50);
+    /**
+     * The ring must be addressable with an int.
+     */
+    public static final int MAX_CAPACITY = 1 << 28;
+    private static final long MIN_REFILL_INTERVAL_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final FlakeGenerator source;
+    private final int capacity;
+    private final int blockSize;
+    private final Duration maxAge;
+    private final long maxAgeTicks;
+    private final long refillIntervalNanos;
+    /**
+     * Callers wake up the refill thread every time they claim a sequence with these bits cleared.
+     * Derived from the block size, but a power of two to avoid a division on every call.
+     */
+    private final long wakeUpMask;
+
+    /*
+     * Every ID ever written to the ring has a sequence number: the ring slot of sequence s is s % capacity.
+     * Invariants: floor <= published <= reserved, and every sequence in [floor, published) has been written
+     * and can be read, unless reserved moved past it by a full lap since.
+     */
+    private final transient ByteBuffer ring;
+    /**
+     * Next sequence to hand out.
+     */
+    private final AtomicLong claimed;
+    /**
+     * Sequences below were discarded.
+     */
+    private volatile long floor;
+    /**
+     * Sequences below were written.
+     */
+    private volatile long published;
+    /**
+     * Sequences below may be being written, overwriting the sequence one lap earlier.
+     */
+    private volatile long reserved;
+
+    private volatile boolean running;
+    private final transient long[] block;
+    private final transient Thread refiller;
+
+    public PregeneratedFlakeGenerator(FlakeGenerator source) {
+        this(source, DEFAULT_CAPACITY, DEFAULT_BLOCK_SIZE, DEFAULT_MAX_AGE);
+    }
+
+    /**
+     * Create a generator and start its refill thread.
+     * @param source the generator of the IDs
+     * @param capacity how many IDs the ring can hold, a power of two
+     * @param blockSize how many IDs are generated at once, at most half the capacity
+     * @param maxAge how old the timestamp of an ID may be before it is discarded
+     */
+    public PregeneratedFlakeGenerator(FlakeGenerator source, int capacity, int blockSize, Duration maxAge) {
+        super(source.getWorkerId(), source.getClock(), source.getWaitStrategy());
+        if (Integer.bitCount(capacity) != 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("The capacity must be a power of two no larger than " + MAX_CAPACITY + ", was: " + capacity);
+        }
+        if (blockSize <= 0 || blockSize > capacity / 2) {
+            throw new IllegalArgumentException("The block size must be between 1 and half the capacity, was: " + blockSize);
+        }
+        if (maxAge.isNegative()) {
+            throw new IllegalArgumentException("The maximum age cannot be negative, was: " + maxAge);
+        }
+        this.source = source;
+        this.capacity = capacity;
+        this.blockSize = blockSize;
+        this.maxAge = maxAge;
+        this.maxAgeTicks = maxAge.toNanos() / RULES.getNanosPerTick();
+        this.refillIntervalNanos = Math.max(MIN_REFILL_INTERVAL_NANOS, maxAge.toNanos() / 2);
+        this.wakeUpMask = Integer.highestOneBit(blockSize) - 1;
+
+        this.ring = ByteBuffer.allocateDirect(capacity * Long.BYTES).order(ByteOrder.nativeOrder());
+        this.claimed = new AtomicLong();
+        this.block = new long[blockSize];
+        this.running = true;
+        refill(); // So that the first IDs are already served from the ring
+        this.refiller = new Thread(this::run, "sunflake-pregenerator");
+        this.refiller.setDaemon(true);
+        this.refiller.start();
+    }
+
+    @Override
+    public long nextId() {
+        long sequence = claimed.getAndIncrement();
+        if ((sequence & wakeUpMask) == 0) {
+            // About a block was consumed, make room for a new one
+            LockSupport.unpark(refiller);
+        }
+        if (sequence < published && sequence >= floor) {
+            long id = ring.getLong(offsetOf(sequence));
+            VarHandle.loadLoadFence(); // Read the ID before checking that it was not overwritten
+            if (reserved - capacity <= sequence) {
+                return id;
+            }
+        }
+        return source.nextId();
+    }
+
+    private int offsetOf(long sequence) {
+        return (int) (sequence & (capacity - 1)) * Long.BYTES;
+    }
+
+    private void run() {
+        while (running) {
+            discardStale();
+            refill();
+            LockSupport.parkNanos(this, refillIntervalNanos);
+        }
+    }
+
+    /**
+     * Discard the whole ring if its oldest unclaimed ID is too old.
+     * Only called by the refill thread.
+     */
+    private void discardStale() {
+        long oldest = Math.max(claimed.get(), floor);
+        long end = published;
+        if (oldest >= end) {
+            return;
+        }
+        long oldestTicks = RULES.timestampTicks(ring.getLong(offsetOf(oldest)));
+        long nowTicks = RULES.timestampTicks(shiftedMonotonicTime());
+        if (nowTicks - oldestTicks > maxAgeTicks) {
+            floor = end;
+            claimed.accumulateAndGet(end, Math::max);
+        }
+    }
+
+    /**
+     * Write blocks of IDs until the ring is full.
+     * Only called by the refill thread, or by the constructor before the thread starts.
+     */
+    private void refill() {
+        long start = reserved;
+        long firstUnclaimed = claimed.get();
+        if (firstUnclaimed > start) {
+            // Callers went past the end of the ring and were served by the source, skip the sequences they burned
+            start = firstUnclaimed;
+            floor = start;
+            reserved = start;
+            published = start;
+        }
+        while (running && start + blockSize <= claimed.get() + capacity) {
+            source.nextIds(block, 0, blockSize);
+            long end = start + blockSize;
+            reserved = end;
+            VarHandle.storeStoreFence(); // Announce the overwrite before writing
+            for (int i = 0; i < blockSize; i++) {
+                ring.putLong(offsetOf(start + i), block[i]);
+            }
+            published = end;
+            start = end;
+        }
+    }
+
+    public FlakeGenerator getSource() {
+        return source;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public Duration getMaxAge() {
+        return maxAge;
+    }
+
+    /**
+     * Stop the refill thread. Once the ring is empty, IDs are taken from the source generator.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(refiller);
+    }
+
+    /**
+     * Threads and direct buffers are not serializable, start a new ring for the deserialized generator.
+     */
+    private Object readResolve() {
+        return new PregeneratedFlakeGenerator(source, capacity, blockSize, maxAge);
+    }
+}
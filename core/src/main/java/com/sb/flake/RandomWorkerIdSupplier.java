@@ -2,23 +2,33 @@ package com.sb.flake;
 
 import systems.helius.commons.SmartProperties;
 
-import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 
+/**
+ * Worker ID supplier that draws the worker ID at random.
+ * <p>
+ * Uses the default {@link SecureRandom} of the platform, seeded from the non-blocking entropy source of the
+ * operating system, rather than {@link SecureRandom#getInstanceStrong()} which may block for seconds
+ * on hosts short of entropy, such as freshly started containers.
+ * </p>
+ */
 public class RandomWorkerIdSupplier implements WorkerIdSupplier {
     @Override
     public long getWorkerId(int maxLength) {
         final long BIT_MASK = (1L << maxLength) - 1; // Bitmask required due to input potentially being negative
         final long MODULO = 1L << maxLength;
 
-        try {
-            return (SecureRandom.getInstanceStrong().nextLong() % MODULO) & BIT_MASK;
-        } catch (NoSuchAlgorithmException e) {
-            throw new UnsupportedOperationException("Your platform has no strong random number generation method!", e);
-        }
+        return (DefaultRandom.INSTANCE.nextLong() % MODULO) & BIT_MASK;
     }
 
     public static WorkerIdSupplier getInstance(SmartProperties props) {
         return new RandomWorkerIdSupplier();
     }
+
+    /**
+     * Lazily created, so that loading the class does not seed a generator.
+     */
+    private static final class DefaultRandom {
+        private static final SecureRandom INSTANCE = new SecureRandom();
+    }
 }
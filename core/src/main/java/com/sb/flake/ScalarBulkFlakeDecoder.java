@@ -0,0 +1,23 @@
+package com.sb.flake;
+
+/**
+ * Decoder used when the Vector API is not available.
+ */
+final class ScalarBulkFlakeDecoder implements BulkFlakeDecoder {
+    @Override
+    public void decode(GenerationRules rules, long[] flakes, int offset, int length,
+                       long[] timestamps, long[] workerIds, long[] sequences, int destinationOffset) {
+        for (int i = 0; i < length; i++) {
+            long flake = flakes[offset + i];
+            if (timestamps != null) {
+                timestamps[destinationOffset + i] = rules.timestampTicks(flake);
+            }
+            if (workerIds != null) {
+                workerIds[destinationOffset + i] = rules.workerId(flake);
+            }
+            if (sequences != null) {
+                sequences[destinationOffset + i] = rules.sequence(flake);
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.sb.flake;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A Flake ID generator that spreads its callers over several independent generators. This implementation is thread-safe.
+ * <p>
+ * Each shard is a generator with its own worker ID, or a {@link LaneFlakeGenerator} pinned to its own lane
+ * of a worker ID, so shards never generate the same ID and never share any state:
+ * the throughput grows with the number of shards, as long as there are as many busy threads.
+ * The worker IDs are either given explicitly, or carved out of the low bits of the worker ID of the process,
+ * see {@link #ofWorkerIdSlice(long, int, FlakeClock, Routing)}.
+ * </p>
+ * <p>
+ * IDs are unique, and increasing for a given thread as long as it stays on the same shard,
+ * but IDs of different shards are only ordered by their timestamps.
+ * The worker ID of the sharded generator itself is the one of its first shard.
+ * </p>
+ */
+public class ShardedFlakeGenerator extends FlakeGenerator {
+    /**
+     * How callers are assigned to shards.
+     */
+    public enum Routing {
+        /**
+         * Each thread is assigned a shard the first time it generates, in round-robin order, then keeps it.
+         * Spreads threads evenly, and keeps the IDs of a thread increasing.
+         */
+        THREAD,
+        /**
+         * Each thread goes to the shard picked by a hash of its ID, without any per-thread state.
+         * An approximation of routing by CPU, which Java does not expose: threads keep their shard,
+         * but several threads may share a shard while another shard stays idle.
+         */
+        STRIPED
+    }
+
+    private static final AtomicInteger NEXT_THREAD_ORDINAL = new AtomicInteger();
+    private static final ThreadLocal<Integer> THREAD_ORDINAL = ThreadLocal.withInitial(NEXT_THREAD_ORDINAL::getAndIncrement);
+
+    private final FlakeGenerator[] shards;
+    private final Routing routing;
+    /**
+     * Mask of the shard index when the number of shards is a power of two, or -1 otherwise.
+     */
+    private final int SHARD_MASK;
+
+    /**
+     * Create a sharded generator over the given generators.
+     * @param shards the generators, with the same rules and distinct worker IDs, or distinct pinned lanes of a worker ID
+     * @param routing how callers are assigned to shards
+     * @throws IllegalArgumentException if two shards could generate the same ID
+     */
+    public ShardedFlakeGenerator(List<? extends FlakeGenerator> shards, Routing routing) {
+        super(first(shards).getWorkerId(), first(shards).getClock(), first(shards).getWaitStrategy());
+        validate(shards);
+        this.shards = shards.toArray(new FlakeGenerator[0]);
+        this.routing = routing;
+        this.SHARD_MASK = Integer.bitCount(this.shards.length) == 1 ? this.shards.length - 1 : -1;
+    }
+
+    /**
+     * Create a sharded generator with one lock-free shard per worker ID.
+     * @param workerIds the distinct worker IDs of the shards
+     * @param clock the clock shared by the shards
+     * @param routing how callers are assigned to shards
+     */
+    public static ShardedFlakeGenerator ofWorkerIds(long[] workerIds, FlakeClock clock, Routing routing) {
+        FlakeGenerator[] shards = new FlakeGenerator[workerIds.length];
+        for (int i = 0; i < workerIds.length; i++) {
+            shards[i] = new LockFreeFlakeGenerator(workerIds[i], clock);
+        }
+        return new ShardedFlakeGenerator(List.of(shards), routing);
+    }
+
+    /**
+     * Create a sharded generator with <code>2^shardBits</code> lock-free shards, whose worker IDs are made of
+     * the given worker ID in the high bits, and of the shard index in the <code>shardBits</code> low bits.
+     * Every process must use the same number of shard bits, and a worker ID unique among the processes.
+     * @param workerId the worker ID of the process, on <code>workerIdSize - shardBits</code> bits
+     * @param shardBits how many bits of the worker ID identify a shard
+     * @param clock the clock shared by the shards
+     * @param routing how callers are assigned to shards
+     */
+    public static ShardedFlakeGenerator ofWorkerIdSlice(long workerId, int shardBits, FlakeClock clock, Routing routing) {
+        GenerationRules rules = clock.getRules();
+        if (shardBits < 0 || shardBits > rules.getWorkerSize() || shardBits >= Integer.SIZE - 1) {
+            throw new IllegalArgumentException("The shard bits must be between 0 and the worker ID size ("
+                    + rules.getWorkerSize() + "), was: " + shardBits);
+        }
+        if (workerId < 0 || workerId >= 1L << (rules.getWorkerSize() - shardBits)) {
+            throw new IllegalArgumentException("Invalid workerId: " + workerId + " (too big). WorkerId must be a "
+                    + (rules.getWorkerSize() - shardBits) + " bits integer when " + shardBits + " bits identify the shard.");
+        }
+        long[] workerIds = new long[1 << shardBits];
+        for (int shard = 0; shard < workerIds.length; shard++) {
+            workerIds[shard] = workerId << shardBits | shard;
+        }
+        return ofWorkerIds(workerIds, clock, routing);
+    }
+
+    private static FlakeGenerator first(List<? extends FlakeGenerator> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("There must be at least one shard");
+        }
+        return shards.get(0);
+    }
+
+    private static void validate(List<? extends FlakeGenerator> shards) {
+        GenerationRules rules = shards.get(0).getRules();
+        // Shard by lane, for each worker ID, where the lane -1 stands for every sequence number of the worker ID
+        Map<Long, Map<Integer, Integer>> shardsByWorkerId = new HashMap<>();
+        for (int i = 0; i < shards.size(); i++) {
+            FlakeGenerator shard = shards.get(i);
+            if (!rules.equals(shard.getRules())) {
+                throw new IllegalArgumentException("Shard " + i + " does not follow the same rules as shard 0");
+            }
+            int lane = lane(shard);
+            Map<Integer, Integer> shardByLane = shardsByWorkerId.computeIfAbsent(shard.getWorkerId(), k -> new HashMap<>());
+            Integer colliding = shardByLane.get(-1);
+            if (colliding == null) {
+                colliding = lane != -1 ? shardByLane.get(lane) : shardByLane.isEmpty() ? null : shardByLane.values().iterator().next();
+            }
+            if (colliding != null) {
+                throw new IllegalArgumentException("Shards " + colliding + " and " + i + " share the sequence numbers of the worker ID "
+                        + shard.getWorkerId(), new NonUniqueException(colliding, i, shard.getWorkerId()));
+            }
+            shardByLane.put(lane, i);
+        }
+    }
+
+    /**
+     * Get the lane a shard is pinned to, or -1 when it may use every sequence number.
+     */
+    private static int lane(FlakeGenerator shard) {
+        return shard instanceof LaneFlakeGenerator ? ((LaneFlakeGenerator) shard).getFixedLane() : -1;
+    }
+
+    /**
+     * Get the shard of the calling thread.
+     */
+    protected FlakeGenerator currentShard() {
+        int n = shards.length;
+        if (routing == Routing.THREAD) {
+            int ordinal = THREAD_ORDINAL.get();
+            return shards[SHARD_MASK != -1 ? ordinal & SHARD_MASK : ordinal % n];
+        }
+        // Fibonacci hashing spreads consecutive thread IDs, the multiply-shift maps the hash to [0, n) without a division
+        long hash = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return shards[(int) (((hash >>> 32) * n) >>> 32)];
+    }
+
+    @Override
+    public long nextId() {
+        return currentShard().nextId();
+    }
+
+    @Override
+    public void nextIds(long[] dst, int offset, int length) {
+        currentShard().nextIds(dst, offset, length);
+    }
+
+    @Override
+    public int tryNextIds(long[] dst, int offset, int length) {
+        return currentShard().tryNextIds(dst, offset, length);
+    }
+
+    public List<FlakeGenerator> getShards() {
+        return List.of(shards);
+    }
+
+    public Routing getRouting() {
+        return routing;
+    }
+}
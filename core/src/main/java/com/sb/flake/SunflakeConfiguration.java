@@ -3,6 +3,11 @@ package com.sb.flake;
 import systems.helius.commons.SmartProperties;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
@@ -22,8 +27,18 @@ public class SunflakeConfiguration {
 
     public static final String SEQUENCE_SIZE = PREFIX + "sequenceSize";
     public static final String WORKER_ID_SIZE = PREFIX + "workerIdSize";
+    /**
+     * How many of the most significant bits of the sequence number identify a lane.
+     * Applies to presets as well as to custom rules.
+     */
+    public static final String SEQUENCE_LANE_SIZE = PREFIX + "sequenceLaneSize";
 
     public static final String WORK_ID_SOURCE = PREFIX + "workerIdSource";
+    /**
+     * How generators wait once the sequence numbers of a tick are exhausted.
+     * The accepted values are those of the {@link WaitStrategy} enum, {@link WaitStrategy#BUSY_SPIN} by default.
+     */
+    public static final String WAIT_STRATEGY = PREFIX + "waitStrategy";
 
     public static final String TIMESTAMP = PREFIX + "timestamp.";
     public static final String TIMESTAMP_SIZE = TIMESTAMP + "size";
@@ -35,13 +50,39 @@ public class SunflakeConfiguration {
     public static final String TIMESTAMP_UNITS_PER_TICK = TIMESTAMP_UNIT + "unitsPerTick";
     public static final String TIMESTAMP_ALLOW_USAGE_OF_SIGN_BIT = TIMESTAMP_UNIT + "allowUsageOfSignBit";
 
-    private static GenerationRules globalRules;
-    private static Long workerId;
-    private static Instant epoch;
+    private static final MethodType SUPPLIER_FACTORY_TYPE = MethodType.methodType(WorkerIdSupplier.class, SmartProperties.class);
+    private static final VarHandle SNAPSHOT;
+
+    static {
+        try {
+            SNAPSHOT = MethodHandles.lookup().findStaticVarHandle(SunflakeConfiguration.class, "snapshot", Snapshot.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * The current configuration, null until it is first read, published through {@link #SNAPSHOT} with release/acquire semantics.
+     */
+    @SuppressWarnings("unused")
+    private static Snapshot snapshot;
 
     private SunflakeConfiguration() {
     }
 
+    /**
+     * Get the current configuration.
+     * <p>
+     * If it is not already set, the sunflake.properties file will be read.
+     * </p>
+     *
+     * @return the current configuration
+     */
+    public static Snapshot getSnapshot() {
+        Snapshot current = (Snapshot) SNAPSHOT.getAcquire();
+        return current != null ? current : initialize();
+    }
+
     /**
      * Return the global rules.
      * <p>
@@ -51,24 +92,62 @@ public class SunflakeConfiguration {
      * @return the global rules.
      */
     public static GenerationRules getGlobalRules() {
-        if (globalRules == null) {
-            initialize();
-        }
-        return globalRules;
+        return getSnapshot().getRules();
     }
 
     public static Instant getEpoch() {
-        if (epoch == null) {
-            initialize();
-        }
-        return epoch;
+        return getSnapshot().getEpoch();
     }
 
     public static long getWorkerId() {
-        if (workerId == null) {
-            initialize();
-        }
-        return workerId;
+        return getSnapshot().getWorkerId();
+    }
+
+    /**
+     * Get the supplier the worker ID was read from.
+     * Generators must be wrapped in a {@link LeasedFlakeGenerator} when it is a {@link LeasedWorkerIdSupplier}.
+     */
+    public static WorkerIdSupplier getWorkerIdSupplier() {
+        return getSnapshot().getWorkerIdSupplier();
+    }
+
+    public static WaitStrategy getWaitStrategy() {
+        return getSnapshot().getWaitStrategy();
+    }
+
+    /**
+     * Read the sunflake.properties file again, and replace the current configuration.
+     * @return the new configuration
+     * @see #reconfigure(SmartProperties)
+     */
+    public static Snapshot reconfigure() {
+        return reconfigure(readProperties());
+    }
+
+    /**
+     * Replace the current configuration with one read from the given properties.
+     * <p>
+     * The new configuration is fully read before it replaces the current one, at once: readers see either
+     * the previous configuration or the new one, never a mix of both. If the properties are invalid,
+     * the current configuration is kept.
+     * </p>
+     * <p>
+     * While {@link #WORK_ID_SOURCE} names the same class, the current worker ID supplier is kept and asked for
+     * a worker ID again, so suppliers holding a lock or a lease keep the one they hold. Its other properties
+     * are then ignored. When the source changes, a new supplier is created, and the previous one is left open:
+     * the generators already created may still use its worker ID. Close it, when it is {@link AutoCloseable},
+     * once they are discarded.
+     * </p>
+     * <p>
+     * The generators already created keep the rules and the worker ID they were created with.
+     * </p>
+     * @param properties the properties to read
+     * @return the new configuration
+     */
+    public static synchronized Snapshot reconfigure(SmartProperties properties) {
+        Snapshot next = read(properties, (Snapshot) SNAPSHOT.getAcquire());
+        SNAPSHOT.setRelease(next);
+        return next;
     }
 
     /**
@@ -77,87 +156,143 @@ public class SunflakeConfiguration {
      */
     // Default encapsulation is to make it reachable for tests
     static void initialize(SmartProperties props) {
-        try {
-            readEpoch(props);
-            readRules(props);
-            readWorkerId(props);
-        } catch (IllegalArgumentException | DateTimeParseException e) {
-            throw new InitializationException(e);
-        }
+        reconfigure(props);
     }
 
     /**
      * Reset the configuration.
      * <p>
-     * This will reset the global rules, worker ID and epoch.
+     * The configuration will be read again on the next access.
      * </p>
      */
     // Default encapsulation is to make it reachable for tests
-    static void reset() {
-        globalRules = null;
-        workerId = null;
-        epoch = null;
-    }
-
-    private static synchronized void initialize() {
-        if (globalRules == null || workerId == null || epoch == null) {
-            SmartProperties properties = readProperties();
-            initialize(properties);
-        }
-    }
-
-    private static void readRules(SmartProperties properties) {
-        if (globalRules == null) {
-            Optional<FlakePreset> preset = properties.getEnum(PRESET, FlakePreset.class);
-            globalRules = preset.map(flakePreset -> flakePreset.getRules(epoch))
-                    .orElseGet(() -> {
-                        var rules = new GenerationRulesBuilder(epoch);
-                        properties.ifIntPresent(SEQUENCE_SIZE, rules::setSequenceSize)
-                                .ifIntPresent(WORKER_ID_SIZE, rules::setWorkerIdSize)
-                                .ifIntPresent(TIMESTAMP_SIZE, rules::setTimestampSize)
-                                .ifIntPresent(TIMESTAMP_UNITS_PER_TICK, rules::setTimeUnitsPerTick)
-                                .ifBooleanPresent(TIMESTAMP_ALLOW_USAGE_OF_SIGN_BIT, rules::setAllowUsageOfSignBit)
-                                .ifEnumPresent(TIMESTAMP_UNIT, TimeUnit.class, rules::setTimeUnit);
-                        return rules.build();
-                    });
-        }
-    }
-
-    private static void readWorkerId(SmartProperties properties) {
-        if (workerId == null) {
-            String workerIdSourceClass = properties.getProperty(WORK_ID_SOURCE);
-            if (workerIdSourceClass != null) {
-                try {
-                    Class<?> clazz = Class.forName(workerIdSourceClass);
-                    WorkerIdSupplier supplier = (WorkerIdSupplier) clazz.getMethod("getInstance", SmartProperties.class)
-                            .invoke(null, readProperties());
-                    workerId = supplier.getWorkerId(globalRules.getWorkerSize());
-                } catch (NoSuchMethodException e) {
-                    throw new InitializationException("Defined class " + workerIdSourceClass + " does not respect the contract of " +
-                            "defining a \"public static WorkerIdSupplier getInstance(SmartProperties)\".");
-                } catch (Exception e) {
-                    throw new InitializationException("Exception while reading the worker ID from the class: " + workerIdSourceClass, e);
-                }
+    static synchronized void reset() {
+        SNAPSHOT.setRelease(null);
+    }
+
+    private static synchronized Snapshot initialize() {
+        Snapshot current = (Snapshot) SNAPSHOT.getAcquire();
+        if (current == null) {
+            current = reconfigure(readProperties());
+        }
+        return current;
+    }
+
+    /**
+     * Read a configuration.
+     * @param current the current configuration, whose worker ID supplier is kept if the source did not change, or null
+     */
+    private static Snapshot read(SmartProperties properties, Snapshot current) {
+        WorkerIdSupplier created = null;
+        try {
+            Instant epoch = readEpoch(properties);
+            GenerationRules rules = readRules(properties, epoch);
+            String workerIdSource = properties.getProperty(WORK_ID_SOURCE);
+            WorkerIdSupplier supplier;
+            if (current != null && current.workerIdSource.equals(workerIdSource)) {
+                supplier = current.workerIdSupplier;
             } else {
-                throw new InitializationException("Worker ID source is not set. Set a worker ID source for the property " + WORK_ID_SOURCE + " in the Sunflake configuration file.");
+                supplier = created = readWorkerIdSupplier(workerIdSource, properties);
             }
+            long workerId = readWorkerId(supplier, rules);
+            WaitStrategy waitStrategy = readWaitStrategy(properties);
+            return new Snapshot(rules, epoch, workerId, workerIdSource, supplier, waitStrategy);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            closeQuietly(created);
+            throw new InitializationException(e);
+        } catch (RuntimeException e) {
+            closeQuietly(created);
+            throw e;
         }
     }
 
-    private static void readEpoch(SmartProperties properties) {
-        if (epoch == null) {
-            String epochProp = properties.getProperty(EPOCH_PROPERTY);
-            if (epochProp != null) {
-                try {
-                    epoch = LocalDate.parse(epochProp)
-                            .atStartOfDay()
-                            .toInstant(ZoneOffset.UTC);
-                } catch (DateTimeParseException e) {
-                    throw new InitializationException("Epoch property is incorrectly formatted. Make sure it follows the yyyy-MM-dd format.");
-                }
-            } else {
-                throw new InitializationException("Epoch property is not set. Set an epoch for the property " + EPOCH_PROPERTY + " in the Sunflake configuration file.");
+    /**
+     * Release what a supplier of a configuration that will not be used holds.
+     */
+    private static void closeQuietly(WorkerIdSupplier supplier) {
+        if (supplier instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) supplier).close();
+            } catch (Exception ignored) {
+                // Nothing more can be done, the configuration fails anyway
+            }
+        }
+    }
+
+    private static GenerationRules readRules(SmartProperties properties, Instant epoch) {
+        Optional<FlakePreset> preset = properties.getEnum(PRESET, FlakePreset.class);
+        var rules = preset.map(flakePreset -> new GenerationRulesBuilder(flakePreset.getRules(epoch)))
+                .orElseGet(() -> {
+                    var custom = new GenerationRulesBuilder(epoch);
+                    properties.ifIntPresent(SEQUENCE_SIZE, custom::setSequenceSize)
+                            .ifIntPresent(WORKER_ID_SIZE, custom::setWorkerIdSize)
+                            .ifIntPresent(TIMESTAMP_SIZE, custom::setTimestampSize)
+                            .ifIntPresent(TIMESTAMP_UNITS_PER_TICK, custom::setTimeUnitsPerTick)
+                            .ifBooleanPresent(TIMESTAMP_ALLOW_USAGE_OF_SIGN_BIT, custom::setAllowUsageOfSignBit)
+                            .ifEnumPresent(TIMESTAMP_UNIT, TimeUnit.class, custom::setTimeUnit);
+                    return custom;
+                });
+        properties.ifIntPresent(SEQUENCE_LANE_SIZE, rules::setLaneSize);
+        return rules.build();
+    }
+
+    private static WorkerIdSupplier readWorkerIdSupplier(String workerIdSourceClass, SmartProperties properties) {
+        if (workerIdSourceClass == null) {
+            throw new InitializationException("Worker ID source is not set. Set a worker ID source for the property " + WORK_ID_SOURCE + " in the Sunflake configuration file.");
+        }
+        MethodHandle factory = findSupplierFactory(workerIdSourceClass);
+        try {
+            return (WorkerIdSupplier) factory.invokeExact(properties);
+        } catch (InitializationException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new InitializationException("Exception while reading the worker ID from the class: " + workerIdSourceClass, e);
+        }
+    }
+
+    /**
+     * Find the <code>getInstance(SmartProperties)</code> method of a worker ID supplier.
+     * A method handle is resolved and type-checked once, instead of on every reflective invocation.
+     * @return a method handle of type <code>(SmartProperties)WorkerIdSupplier</code>
+     */
+    private static MethodHandle findSupplierFactory(String className) {
+        try {
+            Class<?> clazz = Class.forName(className, true, Thread.currentThread().getContextClassLoader());
+            return MethodHandles.publicLookup().findStatic(clazz, "getInstance", SUPPLIER_FACTORY_TYPE);
+        } catch (ClassNotFoundException e) {
+            throw new InitializationException("The worker ID source class " + className + " was not found.", e);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new InitializationException("Defined class " + className + " does not respect the contract of " +
+                    "defining a \"public static WorkerIdSupplier getInstance(SmartProperties)\".", e);
+        }
+    }
+
+    private static long readWorkerId(WorkerIdSupplier supplier, GenerationRules rules) {
+        try {
+            return supplier.getWorkerId(rules.getWorkerSize());
+        } catch (InitializationException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new InitializationException("Exception while reading the worker ID from the class: " + supplier.getClass().getName(), e);
+        }
+    }
+
+    private static WaitStrategy readWaitStrategy(SmartProperties properties) {
+        return properties.getEnum(WAIT_STRATEGY, WaitStrategy.class).orElse(WaitStrategy.BUSY_SPIN);
+    }
+
+    private static Instant readEpoch(SmartProperties properties) {
+        String epochProp = properties.getProperty(EPOCH_PROPERTY);
+        if (epochProp != null) {
+            try {
+                return LocalDate.parse(epochProp)
+                        .atStartOfDay()
+                        .toInstant(ZoneOffset.UTC);
+            } catch (DateTimeParseException e) {
+                throw new InitializationException("Epoch property is incorrectly formatted. Make sure it follows the yyyy-MM-dd format.");
             }
+        } else {
+            throw new InitializationException("Epoch property is not set. Set an epoch for the property " + EPOCH_PROPERTY + " in the Sunflake configuration file.");
         }
     }
 
@@ -166,9 +301,12 @@ public class SunflakeConfiguration {
         if (path == null) {
             path = FILE_NAME;
         }
-        try {
+        try (InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream(path)) {
+            if (in == null) {
+                throw new InitializationException("The properties file was not found on the classpath at: " + path);
+            }
             var read = new SmartProperties();
-            read.load(Thread.currentThread().getContextClassLoader().getResourceAsStream(path));
+            read.load(in);
             return read;
         } catch (IOException | IllegalArgumentException e) {
             throw new InitializationException("Exception while reading the properties file at: " + path, e);
@@ -184,4 +322,53 @@ public class SunflakeConfiguration {
     public static FlakeData parse(long id) {
         return getGlobalRules().parse(id);
     }
+
+    /**
+     * An immutable configuration, replaced as a whole when {@link #reconfigure(SmartProperties) reconfiguring}.
+     */
+    public static final class Snapshot {
+        private final GenerationRules rules;
+        private final Instant epoch;
+        private final long workerId;
+        private final String workerIdSource;
+        private final WorkerIdSupplier workerIdSupplier;
+        private final WaitStrategy waitStrategy;
+
+        private Snapshot(GenerationRules rules, Instant epoch, long workerId, String workerIdSource,
+                         WorkerIdSupplier workerIdSupplier, WaitStrategy waitStrategy) {
+            this.rules = rules;
+            this.epoch = epoch;
+            this.workerId = workerId;
+            this.workerIdSource = workerIdSource;
+            this.workerIdSupplier = workerIdSupplier;
+            this.waitStrategy = waitStrategy;
+        }
+
+        public GenerationRules getRules() {
+            return rules;
+        }
+
+        public Instant getEpoch() {
+            return epoch;
+        }
+
+        public long getWorkerId() {
+            return workerId;
+        }
+
+        /**
+         * Get the name of the class the worker ID supplier was created by.
+         */
+        public String getWorkerIdSource() {
+            return workerIdSource;
+        }
+
+        public WorkerIdSupplier getWorkerIdSupplier() {
+            return workerIdSupplier;
+        }
+
+        public WaitStrategy getWaitStrategy() {
+            return waitStrategy;
+        }
+    }
 }
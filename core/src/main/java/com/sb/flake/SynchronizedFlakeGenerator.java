@@ -1,14 +1,24 @@
 package com.sb.flake;
 
-import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * A Flake ID generator that support custom generation rules. This implementation is thread-safe.
  * <p>
  * Internally, all timestamps shared between methods are already masked and shifted.
  * </p>
+ * <p>
+ * When the sequence numbers of a tick are exhausted, callers wait for the next tick outside the lock,
+ * following the {@link WaitStrategy} of the generator.
+ * </p>
+ * <p>
+ * With a listener, every caller that finds the lock held by another caller is reported as
+ * {@link FlakeGeneratorListener#onContention() contention}.
+ * </p>
  */
 public class SynchronizedFlakeGenerator extends FlakeGenerator {
+    private final ReentrantLock LOCK = new ReentrantLock();
 
     /**
      * Previous timestamp already shifted by 41 bits
@@ -17,49 +27,135 @@ public class SynchronizedFlakeGenerator extends FlakeGenerator {
     private long sequence;
 
     public SynchronizedFlakeGenerator(long workerId, GenerationRules rules) {
-        super(workerId, rules);
-        this.previousTimestamp = this.INSTANCE_START_TIME;
+        this(workerId, new MonotonicFlakeClock(rules));
+    }
+
+    public SynchronizedFlakeGenerator(long workerId, FlakeClock clock) {
+        this(workerId, clock, WaitStrategy.BUSY_SPIN);
+    }
+
+    public SynchronizedFlakeGenerator(long workerId, FlakeClock clock, WaitStrategy waitStrategy) {
+        this(workerId, clock, waitStrategy, null);
+    }
+
+    public SynchronizedFlakeGenerator(long workerId, FlakeClock clock, WaitStrategy waitStrategy, FlakeGeneratorListener listener) {
+        super(workerId, clock, waitStrategy, listener);
+        this.previousTimestamp = shiftedMonotonicTime();
         this.sequence = 0L;
     }
 
-    public synchronized long nextId() {
-        long id = shiftedMonotonicTime();
-        if (this.previousTimestamp != id) {
-            resetSequence(id);
+    public long nextId() {
+        while (true) {
+            long exhaustedTimestamp;
+            lock();
+            try {
+                long ts = shiftedMonotonicTime();
+                if (this.previousTimestamp != ts) {
+                    resetSequence(ts);
+                }
+                if (this.sequence <= this.RULES.SEQUENCE_MASK) {
+                    if (this.LISTENER != null) {
+                        this.LISTENER.onIdsIssued(1);
+                    }
+                    return ts | this.sequence++ | this.SHIFTED_WORKER_ID;
+                }
+                exhaustedTimestamp = ts;
+            } finally {
+                this.LOCK.unlock();
+            }
+            // Wait outside the lock, so that waiting threads do not hold each other
+            awaitNextTimestamp(exhaustedTimestamp);
         }
-        id = insertSequence(id);
-        id |= this.SHIFTED_WORKER_ID;
-        return id;
     }
 
-    private long insertSequence(long id) {
-        long sequenceNumber = sequence++;
-        long maskedSequenceNumber = sequenceNumber & this.RULES.SEQUENCE_MASK;
-        /* If the maskedSequenceNumber is smaller than the original sequence number,
-         * it means that the sequence number is larger than the max possible sequence number for the rules of the generator
-         * Loop instead of simple condition in case the queue to get a sequence number at the next timestamp
-         * was larger than the max possible sequence number for the rules of the generator.
-         */
-        while (maskedSequenceNumber != sequenceNumber) {
-            id = awaitNextTimestamp(id);
-            sequenceNumber = sequence++;
-            maskedSequenceNumber = sequenceNumber & this.RULES.SEQUENCE_MASK;
+    @Override
+    public void nextIds(long[] dst, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, dst.length);
+        final int end = offset + length;
+        while (offset < end) {
+            long exhaustedTimestamp;
+            lock();
+            try {
+                long ts = shiftedMonotonicTime();
+                if (this.previousTimestamp != ts) {
+                    resetSequence(ts);
+                }
+                // Reserve the whole remaining range of the tick, or what is left to generate if it is smaller
+                long count = Math.min(end - offset, this.RULES.SEQUENCE_MASK + 1 - this.sequence);
+                long id = ts | this.SHIFTED_WORKER_ID | this.sequence;
+                this.sequence += count;
+                for (long i = 0; i < count; i++) {
+                    dst[offset++] = id++;
+                }
+                if (this.LISTENER != null && count > 0) {
+                    this.LISTENER.onIdsIssued(count);
+                }
+                exhaustedTimestamp = ts;
+            } finally {
+                this.LOCK.unlock();
+            }
+            if (offset < end) {
+                awaitNextTimestamp(exhaustedTimestamp);
+            }
         }
-        id |= maskedSequenceNumber;
-        return id;
     }
 
-    private long awaitNextTimestamp(long tsOnArrival) {
-        long ts;
+    @Override
+    public int tryNextIds(long[] dst, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, dst.length);
+        lock();
+        try {
+            long ts = shiftedMonotonicTime();
+            if (this.previousTimestamp != ts) {
+                resetSequence(ts);
+            }
+            int count = (int) Math.min(length, Math.max(0, this.RULES.SEQUENCE_MASK + 1 - this.sequence));
+            long id = ts | this.SHIFTED_WORKER_ID | this.sequence;
+            this.sequence += count;
+            for (int i = 0; i < count; i++) {
+                dst[offset + i] = id + i;
+            }
+            if (this.LISTENER != null && count > 0) {
+                this.LISTENER.onIdsIssued(count);
+            }
+            return count;
+        } finally {
+            this.LOCK.unlock();
+        }
+    }
+
+    /**
+     * Acquire the lock, reporting to the listener when another caller holds it.
+     */
+    private void lock() {
+        if (this.LISTENER == null) {
+            this.LOCK.lock();
+        } else if (!this.LOCK.tryLock()) {
+            this.LISTENER.onContention();
+            this.LOCK.lock();
+        }
+    }
+
+    private void awaitNextTimestamp(long exhaustedTimestamp) {
+        long start = 0;
+        if (this.LISTENER != null) {
+            this.LISTENER.onSequenceExhausted();
+            start = System.nanoTime();
+        }
+        int iteration = 0;
         do {
-            Thread.onSpinWait(); // Free some CPU resources
-            ts = shiftedMonotonicTime();
-        } while (ts <= tsOnArrival);
-        resetSequence(ts);
-        return ts;
+            this.WAIT_STRATEGY.idle(iteration++, this.CLOCK);
+        } while (shiftedMonotonicTime() <= exhaustedTimestamp);
+        if (this.LISTENER != null) {
+            this.LISTENER.onWaitCompleted(System.nanoTime() - start);
+        }
     }
 
     private void resetSequence(long newTs) {
+        if (this.LISTENER != null && this.sequence > 0) {
+            long capacity = this.RULES.SEQUENCE_MASK + 1;
+            this.LISTENER.onTickCompleted(Math.min(this.sequence, capacity), capacity);
+        }
         this.previousTimestamp = newTs;
         this.sequence = 0;
     }
@@ -0,0 +1,72 @@
+package com.sb.flake;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a generator waits for the next tick once the sequence numbers of the current one are exhausted.
+ * <p>
+ * Generators call {@link #idle(int, FlakeClock)} repeatedly, reading the clock in between,
+ * until the clock reaches the next tick. Generators never hold a monitor while waiting,
+ * so virtual threads waiting with {@link #SPIN_THEN_PARK} release their carrier thread.
+ * </p>
+ */
+public enum WaitStrategy {
+    /**
+     * Spin until the next tick. Lowest latency, but burns a CPU for up to a whole tick.
+     */
+    BUSY_SPIN {
+        @Override
+        public void idle(int iteration, FlakeClock clock) {
+            Thread.onSpinWait();
+        }
+    },
+    /**
+     * Spin for a while, then yield the CPU to other threads between reads of the clock.
+     */
+    SPIN_THEN_YIELD {
+        @Override
+        public void idle(int iteration, FlakeClock clock) {
+            if (iteration < SPIN_ITERATIONS) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+        }
+    },
+    /**
+     * Spin for a while, then park until the next tick boundary.
+     * Best suited to coarse ticks, and to virtual threads.
+     */
+    SPIN_THEN_PARK {
+        @Override
+        public void idle(int iteration, FlakeClock clock) {
+            if (iteration < SPIN_ITERATIONS) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(this, clock.nanosUntilNextTick());
+            }
+        }
+    },
+    /**
+     * Do not wait, throw an {@link ExhaustedTimestampsException} instead.
+     */
+    FAIL_FAST {
+        @Override
+        public void idle(int iteration, FlakeClock clock) {
+            throw new ExhaustedTimestampsException(clock.getRules());
+        }
+    };
+
+    /**
+     * How many times to spin before yielding or parking, enough to cover ticks of a few microseconds.
+     */
+    static final int SPIN_ITERATIONS = 100;
+
+    /**
+     * Wait a little while the clock is still on an exhausted tick.
+     * @param iteration how many times this method was already called during the same wait
+     * @param clock the clock being waited on
+     * @throws ExhaustedTimestampsException if this strategy does not wait
+     */
+    public abstract void idle(int iteration, FlakeClock clock);
+}
@@ -0,0 +1,80 @@
+package com.sb.flake;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryUtilTest {
+
+    @Test
+    void GivenValue_WhenToUnformattedBinary_ThenAll64BitsZeroPadded() {
+        assertEquals("0".repeat(64), BinaryUtil.toUnformattedBinary(0));
+        assertEquals("0".repeat(63) + "1", BinaryUtil.toUnformattedBinary(1));
+        assertEquals("1".repeat(64), BinaryUtil.toUnformattedBinary(-1));
+        assertEquals("1" + "0".repeat(63), BinaryUtil.toUnformattedBinary(Long.MIN_VALUE));
+    }
+
+    @Test
+    void GivenSnowflake_WhenToFormattedBinary_ThenGroupsSeparated() {
+        GenerationRules rules = GenerationRules.snowflake(Instant.EPOCH);
+        long id = (5L << rules.getTimestampShift()) | (3L << rules.getSequenceSize()) | 7;
+        String expected = "0_" + "0".repeat(38) + "101_" + "0000000011_" + "000000000111";
+        assertEquals(expected, BinaryUtil.toFormattedBinary(id, rules));
+        assertEquals(expected.length(), BinaryUtil.formattedBinaryLength(rules));
+    }
+
+    @ParameterizedTest
+    @EnumSource(FlakePreset.class)
+    void GivenPreset_WhenToFormattedBinary_ThenGroupsHaveTheirSizes(FlakePreset preset) {
+        GenerationRules rules = preset.getRules(Instant.EPOCH);
+        long id = new SplittableRandom(preset.ordinal()).nextLong() & rules.SIGN_MASK;
+        String formatted = BinaryUtil.toFormattedBinary(id, rules);
+        assertEquals(BinaryUtil.toUnformattedBinary(id), formatted.replace("_", ""));
+
+        String[] groups = formatted.split("_");
+        int i = groups.length - 1;
+        assertEquals(rules.getSequenceSize(), groups[i--].length());
+        assertEquals(rules.getWorkerSize(), groups[i--].length());
+        assertEquals(rules.getTimestampSize(), groups[i--].length());
+        assertEquals(Long.SIZE - rules.getTimestampShift() - rules.getTimestampSize(), i < 0 ? 0 : groups[i].length());
+    }
+
+    @Test
+    void GivenEmptyGroups_WhenToFormattedBinary_ThenNoEmptySeparator() {
+        GenerationRules rules = new GenerationRules(32, 0, 32, Instant.EPOCH, true, TimeUnit.MILLISECONDS, 1);
+        String formatted = BinaryUtil.toFormattedBinary(-1L, rules);
+        assertEquals("1".repeat(32) + "_" + "1".repeat(32), formatted);
+    }
+
+    @Test
+    void GivenOffset_WhenToFormattedBinaryInArray_ThenWrittenAtOffset() {
+        GenerationRules rules = GenerationRules.sonyflake(Instant.EPOCH);
+        int length = BinaryUtil.formattedBinaryLength(rules);
+        char[] chars = new char[length + 2];
+        assertEquals(length + 1, BinaryUtil.toFormattedBinary(42, rules, chars, 1));
+        assertEquals(BinaryUtil.toFormattedBinary(42, rules), new String(chars, 1, length));
+        assertThrows(IndexOutOfBoundsException.class, () -> BinaryUtil.toFormattedBinary(42, rules, chars, 3));
+    }
+
+    @Test
+    void GivenBuilders_WhenAppendFormattedBinary_ThenAppendedAfterContent() throws IOException {
+        GenerationRules rules = GenerationRules.snowflake(Instant.EPOCH);
+        String expected = BinaryUtil.toFormattedBinary(123_456_789L, rules);
+
+        StringBuilder sb = new StringBuilder("id: ");
+        assertSame(sb, BinaryUtil.appendFormattedBinary(123_456_789L, rules, sb));
+        assertEquals("id: " + expected, sb.toString());
+
+        StringWriter writer = new StringWriter();
+        BinaryUtil.appendFormattedBinary(123_456_789L, rules, writer).append('\n');
+        assertEquals(expected + "\n", writer.toString());
+    }
+}
@@ -0,0 +1,71 @@
+package com.sb.flake;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BurstFlakeGeneratorTest {
+
+    @Test
+    void GivenBurstWithinLead_WhenSequenceIsExhausted_ThenBorrowFromNextTicksWithoutWaiting() {
+        GenerationRules rules = GenerationRules.sonyflake(Instant.now());
+        var metrics = new FlakeGeneratorMetrics();
+        final long MAX_LEAD_TICKS = 10;
+        var generator = new BurstFlakeGenerator(1, new MonotonicFlakeClock(rules), MAX_LEAD_TICKS, WaitStrategy.BUSY_SPIN, metrics);
+
+        // Three ticks worth of IDs, generated much faster than three ticks
+        final int N_IDS = (int) rules.getSequencesPerTick() * 3;
+        long previous = 0;
+        for (int i = 0; i < N_IDS; i++) {
+            long id = generator.nextId();
+            assertTrue(previous < id, "IDs must be increasing");
+            previous = id;
+        }
+        assertEquals(0, metrics.getSequenceExhaustions(), "Borrowing must not wait");
+        assertTrue(generator.getLeadTicks() >= 1);
+        assertTrue(generator.getLeadTicks() <= MAX_LEAD_TICKS);
+        assertEquals(1, generator.getCurrentTickUtilization());
+    }
+
+    @Test
+    void GivenLeadReached_WhenNextId_ThenWaitForClock() {
+        GenerationRules rules = GenerationRules.sonyflake(Instant.now());
+        var metrics = new FlakeGeneratorMetrics();
+        final long MAX_LEAD_TICKS = 2;
+        var generator = new BurstFlakeGenerator(1, new MonotonicFlakeClock(rules), MAX_LEAD_TICKS, WaitStrategy.BUSY_SPIN, metrics);
+
+        final int N_IDS = (int) rules.getSequencesPerTick() * 6;
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < N_IDS; i++) {
+            long id = generator.nextId();
+            assertTrue(ids.add(id));
+            long leadTicks = rules.timestampTicks(id) - rules.timestampTicks(generator.getClock().shiftedTime());
+            assertTrue(leadTicks <= MAX_LEAD_TICKS, "ID generated " + leadTicks + " ticks ahead");
+        }
+        assertTrue(metrics.getSequenceExhaustions() > 0, "Must wait once the lead is reached");
+    }
+
+    @Test
+    void GivenIdleGenerator_WhenGetLead_ThenZero() throws InterruptedException {
+        GenerationRules rules = GenerationRules.sonyflake(Instant.now());
+        var generator = new BurstFlakeGenerator(1, rules, Duration.ofMillis(50));
+        assertEquals(5, generator.getMaxLeadTicks());
+        generator.nextIds((int) rules.getSequencesPerTick() * 2);
+        Thread.sleep(rules.getNanosPerTick() * 4 / 1_000_000);
+        assertEquals(0, generator.getLeadTicks());
+        assertEquals(Duration.ZERO, generator.getLead());
+        assertEquals(0, generator.getCurrentTickUtilization());
+    }
+
+    @Test
+    void GivenNegativeLead_WhenCreate_ThenThrow() {
+        var clock = new MonotonicFlakeClock(GenerationRules.sonyflake(Instant.now()));
+        assertThrows(IllegalArgumentException.class,
+                () -> new BurstFlakeGenerator(1, clock, -1, WaitStrategy.BUSY_SPIN, null));
+    }
+}
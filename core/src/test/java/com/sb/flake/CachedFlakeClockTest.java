@@ -0,0 +1,70 @@
+package com.sb.flake;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachedFlakeClockTest {
+
+    @SuppressWarnings("squid:S2925") // We want to pass the time as part of the test.
+    @Test
+    void GivenRunningClock_WhenTimePasses_ThenFollowsSourceClock() throws InterruptedException {
+        GenerationRules rules = GenerationRules.snowflake(Instant.now());
+        FlakeClock source = new MonotonicFlakeClock(rules);
+        try (var clock = new CachedFlakeClock(source)) {
+            long first = clock.shiftedTime();
+            assertTrue(first <= source.shiftedTime());
+            Thread.sleep(5);
+            long second = clock.shiftedTime();
+            assertTrue(first < second, "Clock did not advance: " + first + " then " + second);
+            assertTrue(second <= source.shiftedTime());
+        }
+    }
+
+    @SuppressWarnings("squid:S2925") // We want to pass the time as part of the test.
+    @Test
+    void GivenClosedClock_WhenTimePasses_ThenFollowsSourceClock() throws InterruptedException {
+        GenerationRules rules = GenerationRules.snowflake(Instant.now());
+        FlakeClock source = new MonotonicFlakeClock(rules);
+        var clock = new CachedFlakeClock(source);
+        clock.close();
+        long first = clock.shiftedTime();
+        Thread.sleep(5);
+        long later = clock.shiftedTime();
+        assertTrue(later > first);
+        assertTrue(later <= source.shiftedTime());
+    }
+
+    @Test
+    void GivenClosedClock_WhenExhaustTicks_ThenStillGenerateIds() {
+        var clock = new CachedFlakeClock(GenerationRules.sonyflake(Instant.now()));
+        clock.close();
+        long[] ids = new SynchronizedFlakeGenerator(1, clock).nextIds(1_000); // Exhausts the sequence of a few ticks
+        assertEquals(1_000, ids.length);
+    }
+
+    @Test
+    void GivenRules_WhenDefaultUpdateInterval_ThenTenthOfTickWithLowerBound() {
+        Instant epoch = Instant.now();
+        assertEquals(TimeUnit.MICROSECONDS.toNanos(100), CachedFlakeClock.defaultUpdateInterval(GenerationRules.snowflake(epoch)));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1), CachedFlakeClock.defaultUpdateInterval(GenerationRules.sonyflake(epoch)));
+        GenerationRules nanoRules = new GenerationRulesBuilder(GenerationRules.snowflake(epoch))
+                .setTimeUnit(TimeUnit.NANOSECONDS)
+                .build();
+        assertEquals(CachedFlakeClock.MIN_DEFAULT_UPDATE_INTERVAL_NANOS, CachedFlakeClock.defaultUpdateInterval(nanoRules));
+    }
+
+    @Test
+    void GivenCachedClock_WhenGenerateIds_ThenIdsAreUnique() {
+        try (var clock = new CachedFlakeClock(GenerationRules.sonyflake(Instant.now()))) {
+            FlakeGenerator generator = new SynchronizedFlakeGenerator(1, clock);
+            long[] ids = generator.nextIds(1_000); // Exhausts the sequence of a few ticks
+            for (int i = 1; i < ids.length; i++) {
+                assertTrue(ids[i - 1] < ids[i]);
+            }
+        }
+    }
+}
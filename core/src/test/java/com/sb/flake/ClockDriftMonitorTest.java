@@ -0,0 +1,99 @@
+package com.sb.flake;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClockDriftMonitorTest {
+    private static final GenerationRules RULES = GenerationRules.snowflake(Instant.now());
+    private static final long LAG_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    @Test
+    void GivenSlew_WhenShiftedTime_ThenMoveForwardOnly() {
+        var clock = new MonotonicFlakeClock(RULES);
+        long before = clock.shiftedTime() >>> RULES.getTimestampShift();
+        assertEquals(TimeUnit.SECONDS.toNanos(2), clock.slew(TimeUnit.SECONDS.toNanos(2)));
+        long after = clock.shiftedTime() >>> RULES.getTimestampShift();
+        assertTrue(after - before >= 2_000, "Moved " + (after - before) + " ticks");
+        assertTrue(clock.getDriftNanos() < 0, "The clock must now be ahead of the wall clock");
+        assertThrows(IllegalArgumentException.class, () -> clock.slew(-1));
+    }
+
+    @Test
+    void GivenLaggingClock_WhenCorrecting_ThenSlewInBoundedStepsUntilCaughtUp() throws InterruptedException {
+        var clock = new LaggingClock();
+        final double MAX_SLEW_RATE = 0.5;
+        final Duration INTERVAL = Duration.ofMillis(10);
+        try (var monitor = new ClockDriftMonitor(clock, INTERVAL, true, Duration.ofMillis(1), MAX_SLEW_RATE)) {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            long previous = clock.shiftedTime();
+            while (monitor.getDriftNanos() > TimeUnit.MILLISECONDS.toNanos(1) && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+                long time = clock.shiftedTime();
+                assertTrue(time >= previous, "The clock must never go backward");
+                previous = time;
+            }
+            assertTrue(monitor.getDriftNanos() <= TimeUnit.MILLISECONDS.toNanos(1), "Drift left: " + monitor.getDriftNanos());
+            assertTrue(monitor.getSlewNanos() >= LAG_NANOS - TimeUnit.MILLISECONDS.toNanos(1));
+            long maxStep = (long) (INTERVAL.toNanos() * MAX_SLEW_RATE);
+            assertTrue(monitor.getCorrections() >= LAG_NANOS / maxStep, "The lag must be caught up in several steps");
+        }
+    }
+
+    @Test
+    void GivenClockAheadOfWallTime_WhenCorrecting_ThenNeverMoveItBack() {
+        var clock = new MonotonicFlakeClock(RULES);
+        clock.slew(LAG_NANOS);
+        try (var monitor = new ClockDriftMonitor(clock, Duration.ofSeconds(1), true, Duration.ZERO, 1)) {
+            assertTrue(monitor.check() < 0);
+            assertEquals(0, monitor.getCorrections());
+            assertEquals(LAG_NANOS, monitor.getSlewNanos());
+            assertTrue(monitor.getMaxAbsoluteDriftNanos() > 0);
+        }
+    }
+
+    @Test
+    void GivenMonitoringOnly_WhenClockLags_ThenOnlyReportTheDrift() {
+        var clock = new LaggingClock();
+        try (var monitor = new ClockDriftMonitor(clock)) {
+            assertTrue(monitor.check() >= LAG_NANOS - TimeUnit.MILLISECONDS.toNanos(1));
+            assertFalse(monitor.isCorrecting());
+            assertEquals(0, clock.getSlewNanos());
+        }
+    }
+
+    @Test
+    void GivenRegisteredMonitor_WhenReadThroughJmx_ThenReturnTheDrift() throws JMException {
+        try (var monitor = new ClockDriftMonitor(new LaggingClock())) {
+            ObjectName name = monitor.register("drift-test");
+            try {
+                long drift = (long) ManagementFactory.getPlatformMBeanServer().getAttribute(name, "DriftNanos");
+                assertEquals(monitor.getDriftNanos(), drift);
+                assertEquals(false, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Correcting"));
+            } finally {
+                ClockDriftMonitor.unregister("drift-test");
+            }
+        }
+    }
+
+    /**
+     * A clock that started behind the wall clock.
+     */
+    private static class LaggingClock extends MonotonicFlakeClock {
+        private LaggingClock() {
+            super(ClockDriftMonitorTest.RULES);
+        }
+
+        @Override
+        public long getDriftNanos() {
+            return super.getDriftNanos() + LAG_NANOS;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.sb.flake;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import systems.helius.commons.SmartProperties;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileLockWorkerIdSupplierTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void GivenSeveralSuppliers_WhenGetWorkerId_ThenEachClaimsADistinctId() {
+        final int N_SLOTS = 70; // More than one word of the bitmap
+        Set<Long> workerIds = new HashSet<>();
+        FileLockWorkerIdSupplier[] suppliers = new FileLockWorkerIdSupplier[N_SLOTS];
+        try {
+            for (int i = 0; i < N_SLOTS; i++) {
+                suppliers[i] = new FileLockWorkerIdSupplier(directory, N_SLOTS);
+                long workerId = suppliers[i].getWorkerId(10);
+                assertTrue(workerId >= 0 && workerId < N_SLOTS);
+                assertTrue(workerIds.add(workerId), "Duplicate worker ID: " + workerId);
+            }
+            var tooMany = new FileLockWorkerIdSupplier(directory, N_SLOTS);
+            assertThrows(InitializationException.class, () -> tooMany.getWorkerId(10));
+        } finally {
+            for (FileLockWorkerIdSupplier supplier : suppliers) {
+                if (supplier != null) {
+                    supplier.close();
+                }
+            }
+        }
+    }
+
+    @Test
+    void GivenClaimedId_WhenGetWorkerIdAgain_ThenReturnSameId() {
+        try (var supplier = new FileLockWorkerIdSupplier(directory)) {
+            assertEquals(supplier.getWorkerId(10), supplier.getWorkerId(10));
+        }
+    }
+
+    @Test
+    void GivenClosedSupplier_WhenAnotherSupplierClaims_ThenIdIsReused() {
+        var first = new FileLockWorkerIdSupplier(directory, 1);
+        long workerId = first.getWorkerId(10);
+        first.close();
+        try (var second = new FileLockWorkerIdSupplier(directory, 1)) {
+            assertEquals(workerId, second.getWorkerId(10));
+        }
+    }
+
+    @Test
+    void GivenStaleBitmapHint_WhenGetWorkerId_ThenStillClaimUnlockedId() throws IOException {
+        // Mark every worker ID as used, as if the processes using them crashed
+        try (FileChannel channel = FileChannel.open(directory.resolve(FileLockWorkerIdSupplier.FILE_NAME),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer bitmap = channel.map(FileChannel.MapMode.READ_WRITE, 0, Long.BYTES);
+            bitmap.order(ByteOrder.nativeOrder()).putLong(0, -1L);
+        }
+        try (var supplier = new FileLockWorkerIdSupplier(directory, 4)) {
+            long workerId = supplier.getWorkerId(10);
+            assertTrue(workerId >= 0 && workerId < 4);
+        }
+    }
+
+    @Test
+    void GivenSmallWorkerIdSize_WhenGetWorkerId_ThenOnlyClaimIdsThatFit() {
+        try (var first = new FileLockWorkerIdSupplier(directory);
+             var second = new FileLockWorkerIdSupplier(directory)) {
+            assertTrue(first.getWorkerId(1) < 2);
+            assertTrue(second.getWorkerId(1) < 2);
+            var third = new FileLockWorkerIdSupplier(directory);
+            assertThrows(InitializationException.class, () -> third.getWorkerId(1));
+        }
+    }
+
+    @Test
+    void GivenFailedClaimInSameJvm_WhenAnotherProcessClaims_ThenIdStillLocked() throws Exception {
+        try (var holder = new FileLockWorkerIdSupplier(directory, 1)) {
+            assertEquals(0, holder.getWorkerId(10));
+            var tooMany = new FileLockWorkerIdSupplier(directory, 1);
+            assertThrows(InitializationException.class, () -> tooMany.getWorkerId(10));
+            assertEquals(OtherProcess.TAKEN, claimInOtherProcess(1));
+        }
+        assertEquals("0", claimInOtherProcess(1));
+    }
+
+    private String claimInOtherProcess(int maxSlots) throws Exception {
+        Process process = new ProcessBuilder(ProcessHandle.current().info().command().orElse("java"),
+                "-cp", System.getProperty("java.class.path"), OtherProcess.class.getName(),
+                directory.toString(), Integer.toString(maxSlots))
+                .redirectErrorStream(true)
+                .start();
+        assertTrue(process.waitFor(30, TimeUnit.SECONDS), "The other process did not finish");
+        return new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+    }
+
+    /**
+     * Claims a worker ID in another JVM and prints it.
+     */
+    static class OtherProcess {
+        static final String TAKEN = "taken";
+
+        public static void main(String[] args) {
+            try (var supplier = new FileLockWorkerIdSupplier(Paths.get(args[0]), Integer.parseInt(args[1]))) {
+                System.out.print(supplier.getWorkerId(10));
+            } catch (InitializationException e) {
+                System.out.print(TAKEN);
+            }
+        }
+    }
+
+    @Test
+    void GivenProperties_WhenGetInstance_ThenUseConfiguredDirectory() {
+        var props = new SmartProperties();
+        props.setProperty(FileLockWorkerIdSupplier.DIRECTORY, directory.toString());
+        var supplier = (FileLockWorkerIdSupplier) FileLockWorkerIdSupplier.getInstance(props);
+        assertEquals(directory.resolve(FileLockWorkerIdSupplier.FILE_NAME), supplier.getFile());
+    }
+}
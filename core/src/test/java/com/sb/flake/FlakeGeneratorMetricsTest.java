@@ -0,0 +1,105 @@
+package com.sb.flake;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlakeGeneratorMetricsTest {
+
+    @Test
+    void GivenMonitoredGenerators_WhenSequenceIsExhausted_ThenCountEveryEvent() {
+        for (int implementation = 0; implementation < 3; implementation++) {
+            var metrics = new FlakeGeneratorMetrics();
+            FlakeClock clock = new MonotonicFlakeClock(GenerationRules.sonyflake(Instant.now()));
+            FlakeGenerator generator = switch (implementation) {
+                case 0 -> new SynchronizedFlakeGenerator(1, clock, WaitStrategy.BUSY_SPIN, metrics);
+                case 1 -> new LockFreeFlakeGenerator(1, clock, WaitStrategy.BUSY_SPIN, metrics);
+                default -> new LaneFlakeGenerator(1, clock, -1, WaitStrategy.BUSY_SPIN, metrics);
+            };
+            final int N_IDS = (int) (clock.getRules().SEQUENCE_MASK + 1) * 3;
+            for (int i = 0; i < N_IDS; i++) {
+                generator.nextId();
+            }
+            generator.nextIds(new long[N_IDS]);
+
+            String name = generator.getClass().getSimpleName();
+            assertEquals(N_IDS * 2L, metrics.getIdsIssued(), name);
+            assertTrue(metrics.getSequenceExhaustions() >= 5, name + " must exhaust at least 5 ticks");
+            assertTrue(metrics.getTotalWaitNanos() > 0, name);
+            assertTrue(metrics.getMaxWaitNanos() <= metrics.getTotalWaitNanos(), name);
+            assertTrue(metrics.getCompletedTicks() >= 5, name);
+            long[] histogram = metrics.getTickUtilizationHistogram();
+            assertEquals(metrics.getCompletedTicks(), Arrays.stream(histogram).sum(), name);
+            assertTrue(histogram[histogram.length - 1] >= 5, name + " must count the exhausted ticks as full");
+        }
+    }
+
+    @Test
+    void GivenLockHeldByAnotherCaller_WhenNextId_ThenCountContention() throws InterruptedException {
+        var holding = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var metrics = new FlakeGeneratorMetrics() {
+            @Override
+            public void onIdsIssued(long count) {
+                super.onIdsIssued(count);
+                if (Thread.currentThread().getName().equals("holder")) {
+                    // Called while the generator holds its lock
+                    holding.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+        var generator = new SynchronizedFlakeGenerator(1, new MonotonicFlakeClock(GenerationRules.snowflake(Instant.now())),
+                WaitStrategy.BUSY_SPIN, metrics);
+        Thread holder = new Thread(generator::nextId, "holder");
+        holder.start();
+        assertTrue(holding.await(5, TimeUnit.SECONDS));
+        Thread contender = new Thread(generator::nextId, "contender");
+        contender.start();
+        while (metrics.getContentions() == 0 && contender.isAlive()) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        holder.join();
+        contender.join();
+        assertEquals(1, metrics.getContentions());
+        assertEquals(2, metrics.getIdsIssued());
+    }
+
+    @Test
+    void GivenMetrics_WhenReset_ThenCountersAreZero() {
+        var metrics = new FlakeGeneratorMetrics();
+        metrics.onIdsIssued(3);
+        metrics.onWaitCompleted(10);
+        metrics.onTickCompleted(5, 10);
+        metrics.reset();
+        assertEquals(0, metrics.getIdsIssued());
+        assertEquals(0, metrics.getMaxWaitNanos());
+        assertEquals(0, metrics.getAverageTickUtilization());
+        assertEquals(0, Arrays.stream(metrics.getTickUtilizationHistogram()).sum());
+    }
+
+    @Test
+    void GivenRegisteredMetrics_WhenReadThroughJmx_ThenReturnCounters() throws JMException {
+        var metrics = new FlakeGeneratorMetrics();
+        metrics.onIdsIssued(42);
+        ObjectName name = metrics.register("test");
+        try {
+            assertEquals(42L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "IdsIssued"));
+        } finally {
+            FlakeGeneratorMetrics.unregister("test");
+        }
+    }
+}
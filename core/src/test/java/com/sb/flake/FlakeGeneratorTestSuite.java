@@ -168,6 +168,85 @@ public abstract class FlakeGeneratorTestSuite {
         }
     }
 
+    @Test
+    void nextIds_providesIncreasingUniqueIds() {
+        FlakeGenerator generator = makeGenerator(1);
+        long[] ids = generator.nextIds(10_000);
+        for (int i = 1; i < ids.length; i++) {
+            assertTrue(ids[i - 1] < ids[i], "IDs are not increasing at index " + i + ": " + ids[i - 1] + " >= " + ids[i]);
+        }
+        assertTrue(ids[ids.length - 1] < generator.nextId());
+    }
+
+    @Test
+    void nextIds_whenSequenceIsExhausted_spillsIntoNextTicks() {
+        GenerationRules rules = GenerationRules.sonyflake(Instant.now());
+        final int WORKER_ID = 3;
+        FlakeGenerator generator = makeGenerator(WORKER_ID, rules);
+        final int N_TICKS = 4;
+        long[] ids = new long[(int) (rules.getSequenceMask() + 1) * N_TICKS + 1];
+        generator.nextIds(ids);
+
+        Set<Long> timestamps = new HashSet<>();
+        for (int i = 0; i < ids.length; i++) {
+            long[] components = rules.isolateComponents(ids[i]);
+            timestamps.add(components[0]);
+            assertEquals(WORKER_ID, components[1], "Invalid worker ID at index " + i);
+            if (i > 0) {
+                assertTrue(ids[i - 1] < ids[i], "IDs are not increasing at index " + i);
+            }
+        }
+        assertTrue(timestamps.size() > N_TICKS, "Expected more than " + N_TICKS + " ticks, got: " + timestamps.size());
+    }
+
+    @Test
+    void nextIds_withOffset_onlyFillsRange() {
+        FlakeGenerator generator = makeGenerator(1);
+        long[] ids = new long[10];
+        generator.nextIds(ids, 2, 5);
+        assertEquals(0, ids[0]);
+        assertEquals(0, ids[1]);
+        assertEquals(0, ids[7]);
+        for (int i = 3; i < 7; i++) {
+            assertTrue(ids[i - 1] < ids[i]);
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> generator.nextIds(ids, 8, 5));
+    }
+
+    @Test
+    void nextIds_whenMultithreadedWithSingleCalls_providesUniqueIds() throws ExecutionException, InterruptedException {
+        FlakeGenerator generator = makeGenerator(1, GenerationRules.sonyflake(Instant.now()));
+
+        final int N_LOGICAL_CORES = Runtime.getRuntime().availableProcessors();
+        final int N_BATCHES = 20;
+        final int BATCH_SIZE = 100;
+        List<Future<long[]>> futureResults = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(N_LOGICAL_CORES);
+        for (int i = 0; i < N_LOGICAL_CORES; i++) {
+            final boolean batched = i % 2 == 0;
+            futureResults.add(executor.submit(() -> {
+                long[] ids = new long[N_BATCHES * BATCH_SIZE];
+                for (int j = 0; j < N_BATCHES; j++) {
+                    if (batched) {
+                        generator.nextIds(ids, j * BATCH_SIZE, BATCH_SIZE);
+                    } else {
+                        for (int k = 0; k < BATCH_SIZE; k++) {
+                            ids[j * BATCH_SIZE + k] = generator.nextId();
+                        }
+                    }
+                }
+                return ids;
+            }));
+        }
+        executor.shutdown();
+        TreeSet<Long> registered = new TreeSet<>();
+        for (Future<long[]> futureResult : futureResults) {
+            for (long id : futureResult.get()) {
+                assertTrue(registered.add(id), "Duplicate id: " + id);
+            }
+        }
+    }
+
     @SuppressWarnings("squid:S2925") // We want to pass the time as part of the test.
     @Test
     void GivenMultiUnitTicks_WhenDelayedCallsToNextIdWithinPeriod_ThenReturnWithSameTimestamp() throws InterruptedException {
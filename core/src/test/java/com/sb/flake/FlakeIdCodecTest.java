@@ -0,0 +1,118 @@
+package com.sb.flake;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlakeIdCodecTest {
+    private static final long[] EDGES = {0, 1, 31, 32, 61, 62, 63, Long.MAX_VALUE, Long.MIN_VALUE, -2, -1};
+
+    @ParameterizedTest
+    @EnumSource(FlakeIdCodec.class)
+    void GivenAnyId_WhenEncodeDecode_ThenSameIdAndFixedWidth(FlakeIdCodec codec) {
+        SplittableRandom random = new SplittableRandom(codec.ordinal());
+        for (int i = 0; i < 100_000; i++) {
+            long id = i < EDGES.length ? EDGES[i] : random.nextLong();
+            String encoded = codec.encode(id);
+            assertEquals(codec.getLength(), encoded.length(), encoded);
+            assertEquals(id, codec.decode(encoded), encoded);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(FlakeIdCodec.class)
+    void GivenIds_WhenEncode_ThenStringsSortLikeUnsignedIds(FlakeIdCodec codec) {
+        SplittableRandom random = new SplittableRandom(codec.ordinal());
+        for (int i = 0; i < 100_000; i++) {
+            long a = random.nextLong();
+            long b = random.nextInt(4) == 0 ? a + random.nextInt(100) : random.nextLong();
+            assertEquals(Integer.signum(Long.compareUnsigned(a, b)), Integer.signum(codec.encode(a).compareTo(codec.encode(b))),
+                    () -> a + " and " + b);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(FlakeIdCodec.class)
+    void GivenGeneratedIds_WhenEncode_ThenStringsAreSorted(FlakeIdCodec codec) {
+        long[] ids = new LockFreeFlakeGenerator(3, GenerationRules.snowflake(Instant.now())).nextIds(10_000);
+        for (int i = 1; i < ids.length; i++) {
+            assertTrue(codec.encode(ids[i - 1]).compareTo(codec.encode(ids[i])) < 0);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(FlakeIdCodec.class)
+    void GivenBuffers_WhenEncodeDecode_ThenSameAsString(FlakeIdCodec codec) {
+        long id = 0x0123_4567_89AB_CDEFL;
+        String expected = codec.encode(id);
+
+        char[] chars = new char[codec.getLength() + 2];
+        assertEquals(codec.getLength() + 1, codec.encode(id, chars, 1));
+        assertEquals(expected, new String(chars, 1, codec.getLength()));
+        assertEquals(id, codec.decode(chars, 1));
+
+        byte[] bytes = new byte[codec.getLength() + 2];
+        assertEquals(codec.getLength() + 1, codec.encode(id, bytes, 1));
+        assertEquals(expected, new String(bytes, 1, codec.getLength(), StandardCharsets.US_ASCII));
+        assertEquals(id, codec.decode(bytes, 1));
+
+        for (ByteBuffer buffer : new ByteBuffer[]{ByteBuffer.allocate(32), ByteBuffer.allocateDirect(32)}) {
+            buffer.position(3);
+            codec.encode(id, buffer);
+            assertEquals(3 + codec.getLength(), buffer.position());
+            buffer.flip().position(3);
+            assertEquals(id, codec.decode(buffer));
+            assertFalse(buffer.hasRemaining());
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(FlakeIdCodec.class)
+    void GivenTooSmallBuffers_WhenEncode_ThenThrow(FlakeIdCodec codec) {
+        assertThrows(IndexOutOfBoundsException.class, () -> codec.encode(1, new char[codec.getLength()], 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> codec.encode(1, new byte[codec.getLength() - 1], 0));
+        ByteBuffer buffer = ByteBuffer.allocate(codec.getLength() - 1);
+        assertThrows(BufferOverflowException.class, () -> codec.encode(1, buffer));
+        assertEquals(0, buffer.position());
+    }
+
+    @ParameterizedTest
+    @EnumSource(FlakeIdCodec.class)
+    void GivenInvalidText_WhenDecode_ThenThrow(FlakeIdCodec codec) {
+        String valid = codec.encode(42);
+        assertThrows(NumberFormatException.class, () -> codec.decode(valid.substring(1)));
+        assertThrows(NumberFormatException.class, () -> codec.decode(valid + "0"));
+        assertThrows(NumberFormatException.class, () -> codec.decode(valid.substring(1) + "-"));
+        assertThrows(NumberFormatException.class, () -> codec.decode(valid.substring(1) + "\u00e9"));
+        // One more than the largest unsigned long
+        String overflow = codec == FlakeIdCodec.BASE62 ? "LygHa16AHYG" : "G000000000000";
+        assertThrows(NumberFormatException.class, () -> codec.decode(overflow));
+        assertEquals(-1L, codec.decode(codec == FlakeIdCodec.BASE62 ? "LygHa16AHYF" : "FZZZZZZZZZZZZ"));
+    }
+
+    @Test
+    void GivenCrockfordAliases_WhenDecode_ThenDecodedLikeTheirDigit() {
+        FlakeIdCodec codec = FlakeIdCodec.BASE32_CROCKFORD;
+        long id = codec.decode("0123456789ABC");
+        assertEquals(id, codec.decode("O123456789abc"));
+        assertEquals(id, codec.decode("oI23456789AbC"));
+        assertEquals(id, codec.decode("0l23456789aBc"));
+        assertThrows(NumberFormatException.class, () -> codec.decode("U123456789ABC"));
+    }
+
+    @Test
+    void GivenBase62_WhenDecode_ThenCaseSensitive() {
+        FlakeIdCodec codec = FlakeIdCodec.BASE62;
+        assertNotEquals(codec.decode("0000000000a"), codec.decode("0000000000A"));
+        assertEquals(10, codec.decode("0000000000A"));
+        assertEquals(36, codec.decode("0000000000a"));
+    }
+}
@@ -0,0 +1,116 @@
+package com.sb.flake;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlakeIdPublisherTest {
+
+    @Test
+    void GivenRequest_WhenSubscribed_ThenEmitExactlyTheDemand() throws InterruptedException {
+        var publisher = new FlakeIdPublisher(new LockFreeFlakeGenerator(1, GenerationRules.snowflake(Instant.now())));
+        var subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        subscriber.subscription.request(10);
+        Thread.sleep(50); // Give a chance to emit too much
+        assertEquals(10, subscriber.ids.size());
+
+        subscriber.subscription.request(5);
+        Thread.sleep(50);
+        assertEquals(15, subscriber.ids.size());
+    }
+
+    @Test
+    void GivenDemandLargerThanTheSequence_WhenRequest_ThenEmitOverNextTicksWithoutBlocking() throws InterruptedException {
+        GenerationRules rules = GenerationRules.sonyflake(Instant.now());
+        var publisher = new FlakeIdPublisher(new LockFreeFlakeGenerator(1, rules));
+        var subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        final int N_IDS = (int) (rules.SEQUENCE_MASK + 1) * 4;
+        subscriber.subscription.request(N_IDS);
+        assertTrue(subscriber.ids.size() < N_IDS, "The IDs of the next ticks must not be awaited by request()");
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (subscriber.ids.size() < N_IDS && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(N_IDS, subscriber.ids.size());
+        assertEquals(N_IDS, Set.copyOf(subscriber.ids).size(), "All IDs must be unique");
+        for (int i = 1; i < N_IDS; i++) {
+            assertTrue(subscriber.ids.get(i - 1) < subscriber.ids.get(i));
+        }
+    }
+
+    @Test
+    void GivenNonPositiveRequest_WhenRequest_ThenSignalError() {
+        var publisher = new FlakeIdPublisher(new LockFreeFlakeGenerator(1, GenerationRules.snowflake(Instant.now())));
+        var subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+        assertInstanceOf(IllegalArgumentException.class, subscriber.error);
+    }
+
+    @Test
+    void GivenEmissionInProgress_WhenNonPositiveRequest_ThenSignalErrorAfterOnNextReturns() throws Exception {
+        var publisher = new FlakeIdPublisher(new LockFreeFlakeGenerator(1, GenerationRules.snowflake(Instant.now())));
+        CountDownLatch inOnNext = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingSubscriber subscriber = new RecordingSubscriber() {
+            @Override
+            public void onNext(Long item) {
+                inOnNext.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.onNext(item);
+            }
+        };
+        publisher.subscribe(subscriber);
+
+        Thread emitter = new Thread(() -> subscriber.subscription.request(1));
+        emitter.start();
+        assertTrue(inOnNext.await(5, TimeUnit.SECONDS));
+        subscriber.subscription.request(0);
+        assertNull(subscriber.error, "onError must not be called while onNext runs");
+
+        release.countDown();
+        emitter.join(5_000);
+        assertEquals(1, subscriber.ids.size());
+        assertInstanceOf(IllegalArgumentException.class, subscriber.error);
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<Long> {
+        private final List<Long> ids = new CopyOnWriteArrayList<>();
+        private Flow.Subscription subscription;
+        private volatile Throwable error;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Long item) {
+            ids.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            this.error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.sb.flake;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GenerationRulesTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 7, 10, 16, 1000, 1024, 999_983})
+    void nanosToTicks_matchesTimeUnitConversion(int timeUnitsPerTick) {
+        SplittableRandom random = new SplittableRandom(timeUnitsPerTick);
+        for (TimeUnit timeUnit : TimeUnit.values()) {
+            GenerationRules rules = new GenerationRulesBuilder(GenerationRules.snowflake(Instant.now()))
+                    .setTimeUnit(timeUnit)
+                    .setTimeUnitsPerTick(timeUnitsPerTick)
+                    .build();
+            long[] edges = {0, 1, rules.getNanosPerTick() - 1, rules.getNanosPerTick(), rules.getNanosPerTick() + 1, (1L << 62) - 1};
+            for (long nanos : edges) {
+                if (nanos >= 0 && nanos < 1L << 62) {
+                    assertConversion(rules, nanos);
+                }
+            }
+            for (int i = 0; i < 10_000; i++) {
+                assertConversion(rules, random.nextLong(1L << 62));
+                assertConversion(rules, random.nextLong(TimeUnit.DAYS.toNanos(365)));
+            }
+        }
+    }
+
+    private static void assertConversion(GenerationRules rules, long nanos) {
+        long expected = rules.getTimeUnit().convert(nanos, TimeUnit.NANOSECONDS) / rules.getTimeUnitsPerTick();
+        assertEquals(expected, rules.nanosToTicks(nanos),
+                () -> "Wrong conversion of " + nanos + "ns for ticks of " + rules.getTimeUnitsPerTick() + " " + rules.getTimeUnit());
+    }
+
+    @ParameterizedTest
+    @EnumSource(FlakePreset.class)
+    void nanosToTicks_presets_matchTickLength(FlakePreset preset) {
+        GenerationRules rules = preset.getRules(Instant.now());
+        long nanosPerTick = rules.getTimeUnit().toNanos(rules.getTimeUnitsPerTick());
+        assertEquals(nanosPerTick, rules.getNanosPerTick());
+        assertEquals(0, rules.nanosToTicks(nanosPerTick - 1));
+        assertEquals(1, rules.nanosToTicks(nanosPerTick));
+        assertEquals(1_000_000, rules.nanosToTicks(nanosPerTick * 1_000_000 + 1));
+    }
+
+    @Test
+    void GivenNonPositiveTimeUnitsPerTick_WhenBuild_ThenThrow() {
+        var builder = new GenerationRulesBuilder(GenerationRules.snowflake(Instant.now()))
+                .setTimeUnitsPerTick(0);
+        assertThrows(IllegalArgumentException.class, builder::build);
+    }
+
+    @ParameterizedTest
+    @EnumSource(FlakePreset.class)
+    void primitiveExtractors_matchParse(FlakePreset preset) {
+        GenerationRules rules = preset.getRules(Instant.parse("2020-01-01T00:00:00Z"));
+        FlakeGenerator generator = new SynchronizedFlakeGenerator(1, rules);
+        MutableFlakeData mutable = new MutableFlakeData();
+        for (long flake : generator.nextIds(100)) {
+            FlakeData data = rules.parse(flake);
+            long[] components = rules.isolateComponents(flake);
+            assertEquals(components[0], rules.timestampTicks(flake));
+            assertEquals(data.getWorkerId(), rules.workerId(flake));
+            assertEquals(data.getSequenceNumber(), rules.sequence(flake));
+            assertEquals(data.getTimestamp().toEpochMilli(), rules.epochMillis(flake));
+
+            assertSame(mutable, rules.parse(flake, mutable));
+            assertEquals(flake, mutable.getFlake());
+            assertEquals(components[0], mutable.getTimestampTicks());
+            assertEquals(data.getTimestamp().toEpochMilli(), mutable.getEpochMillis());
+            assertEquals(data.getWorkerId(), mutable.getWorkerId());
+            assertEquals(data.getSequenceNumber(), mutable.getSequenceNumber());
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = TimeUnit.class, names = {"MICROSECONDS", "MILLISECONDS", "SECONDS"}, mode = EnumSource.Mode.INCLUDE)
+    void epochMillis_withDifferentTimeUnits_truncatesToMillisecond(TimeUnit timeUnit) {
+        final Instant EPOCH = Instant.parse("2020-01-01T00:00:00Z");
+        GenerationRules rules = new GenerationRulesBuilder(GenerationRules.snowflake(EPOCH))
+                .setTimeUnit(timeUnit)
+                .setTimeUnitsPerTick(3)
+                .build();
+        final long TICKS = 123_456_789L;
+        long flake = TICKS << rules.getTimestampShift();
+        long expected = EPOCH.toEpochMilli() + TimeUnit.MILLISECONDS.convert(TICKS * 3, timeUnit);
+        assertEquals(expected, rules.epochMillis(flake));
+    }
+
+    @ParameterizedTest
+    @EnumSource(FlakePreset.class)
+    void decode_matchesExtractors(FlakePreset preset) {
+        GenerationRules rules = preset.getRules(Instant.now());
+        long[] flakes = randomFlakes(1_003); // Not a multiple of any vector length
+        final int OFFSET = 5;
+        final int LENGTH = flakes.length - OFFSET - 2;
+        long[] timestamps = new long[flakes.length];
+        long[] workerIds = new long[flakes.length];
+        long[] sequences = new long[flakes.length];
+
+        rules.decode(flakes, OFFSET, LENGTH, timestamps, workerIds, sequences);
+
+        for (int i = 0; i < flakes.length; i++) {
+            boolean decoded = i >= OFFSET && i < OFFSET + LENGTH;
+            assertEquals(decoded ? rules.timestampTicks(flakes[i]) : 0, timestamps[i], "Wrong timestamp at index " + i);
+            assertEquals(decoded ? rules.workerId(flakes[i]) : 0, workerIds[i], "Wrong worker ID at index " + i);
+            assertEquals(decoded ? rules.sequence(flakes[i]) : 0, sequences[i], "Wrong sequence at index " + i);
+        }
+    }
+
+    @Test
+    void decode_scalarDecoderMatchesSelectedDecoder() {
+        GenerationRules rules = GenerationRules.sonyflake(Instant.now());
+        long[] flakes = randomFlakes(257);
+        long[] expected = new long[flakes.length];
+        long[] actual = new long[flakes.length];
+        new ScalarBulkFlakeDecoder().decode(rules, flakes, 0, flakes.length, expected, null, null, 0);
+        BulkFlakeDecoder.Holder.INSTANCE.decode(rules, flakes, 0, flakes.length, actual, null, null, 0);
+        assertArrayEquals(expected, actual);
+        boolean vectorModule = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+        assertEquals(vectorModule ? "VectorBulkFlakeDecoder" : "ScalarBulkFlakeDecoder",
+                BulkFlakeDecoder.Holder.INSTANCE.getClass().getSimpleName());
+    }
+
+    @Test
+    void decode_nullColumnsAreSkipped() {
+        GenerationRules rules = GenerationRules.snowflake(Instant.now());
+        long[] flakes = randomFlakes(100);
+        long[] workerIds = new long[flakes.length];
+        rules.decode(flakes, 0, flakes.length, null, workerIds, null);
+        for (int i = 0; i < flakes.length; i++) {
+            assertEquals(rules.workerId(flakes[i]), workerIds[i]);
+        }
+    }
+
+    @Test
+    void decode_columnTooShort_throws() {
+        GenerationRules rules = GenerationRules.snowflake(Instant.now());
+        long[] flakes = randomFlakes(100);
+        assertThrows(IndexOutOfBoundsException.class, () -> rules.decode(flakes, 0, flakes.length, new long[99], null, null));
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void decode_buffer_matchesExtractors(boolean direct) {
+        GenerationRules rules = GenerationRules.snowflake(Instant.now());
+        long[] flakes = randomFlakes(1_500); // Larger than a chunk of the direct buffer path
+        LongBuffer buffer = direct
+                ? ByteBuffer.allocateDirect(flakes.length * Long.BYTES).asLongBuffer().put(flakes)
+                : LongBuffer.wrap(flakes);
+        final int POSITION = 3;
+        buffer.position(POSITION);
+        final int LENGTH = flakes.length - POSITION;
+        long[] timestamps = new long[LENGTH];
+        long[] sequences = new long[LENGTH];
+
+        rules.decode(buffer, timestamps, null, sequences);
+
+        assertEquals(POSITION, buffer.position());
+        for (int i = 0; i < LENGTH; i++) {
+            assertEquals(rules.timestampTicks(flakes[POSITION + i]), timestamps[i], "Wrong timestamp at index " + i);
+            assertEquals(rules.sequence(flakes[POSITION + i]), sequences[i], "Wrong sequence at index " + i);
+        }
+    }
+
+    private static long[] randomFlakes(int n) {
+        return new SplittableRandom(n).longs(n).toArray();
+    }
+
+    @Test
+    void capacityMetadata_matchesRules() {
+        GenerationRules rules = GenerationRules.snowflake(Instant.now());
+        assertEquals(4096, rules.getSequencesPerTick());
+        assertEquals(4_096_000, rules.getMaxIdsPerSecond(), 0.001);
+        assertEquals(50, rules.ticksIn(Duration.ofMillis(50)));
+        assertEquals(5, GenerationRules.sonyflake(Instant.now()).ticksIn(Duration.ofMillis(59)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(FlakePreset.class)
+    void idRange_containsTheIdsGeneratedDuringTheRange(FlakePreset preset) {
+        // A recent epoch, since the very high frequency preset runs out of timestamps after a few weeks
+        GenerationRules rules = preset.getRules(Instant.now().minus(Duration.ofDays(1)));
+        FlakeGenerator generator = new SynchronizedFlakeGenerator(1, rules);
+        Instant before = Instant.now();
+        long[] ids = generator.nextIds(1_000);
+        Instant after = Instant.now().plusNanos(rules.getNanosPerTick()); // The clock truncates to its tick
+        long[] range = rules.idRange(before.minusNanos(rules.getNanosPerTick()), after);
+        for (long id : ids) {
+            assertTrue(id >= range[0] && id <= range[1], "ID " + id + " is outside of its time range");
+            assertTrue(id >= rules.minId(before.minusNanos(rules.getNanosPerTick()), 1));
+            assertTrue(id <= rules.maxId(after, 1));
+        }
+        assertTrue(rules.maxId(before.minusSeconds(60)) < ids[0]);
+        assertTrue(rules.minId(after.plusSeconds(60)) > ids[ids.length - 1]);
+    }
+
+    @Test
+    void minIdMaxId_coverTheWholeTickOfTheInstant() {
+        GenerationRules rules = GenerationRules.snowflake(Instant.parse("2020-01-01T00:00:00Z"));
+        Instant instant = Instant.parse("2020-01-01T00:00:01.0005Z");
+        assertEquals(1000, rules.ticksAt(instant));
+        assertEquals(1000L << rules.getTimestampShift(), rules.minId(instant));
+        assertEquals((1001L << rules.getTimestampShift()) - 1, rules.maxId(instant));
+        assertEquals(1000, rules.timestampTicks(rules.maxId(instant)));
+        assertEquals(7, rules.workerId(rules.minId(instant, 7)));
+        assertEquals(0, rules.sequence(rules.minId(instant, 7)));
+        assertEquals(7, rules.workerId(rules.maxId(instant, 7)));
+        assertEquals(rules.getSequenceMask(), rules.sequence(rules.maxId(instant, 7)));
+    }
+
+    @Test
+    void minIdMaxId_clampInstantsOutsideOfTheTimestamps() {
+        GenerationRules rules = GenerationRules.snowflake(Instant.parse("2020-01-01T00:00:00Z"));
+        assertEquals(0, rules.minId(Instant.EPOCH));
+        assertEquals(Long.MAX_VALUE, rules.maxId(Instant.MAX));
+        assertThrows(IllegalArgumentException.class, () -> rules.idRange(Instant.now(), Instant.now().minusSeconds(1)));
+    }
+}
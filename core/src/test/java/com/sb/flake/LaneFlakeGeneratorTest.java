@@ -0,0 +1,88 @@
+package com.sb.flake;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LaneFlakeGeneratorTest extends FlakeGeneratorTestSuite {
+    @Override
+    FlakeGenerator makeGenerator(long machineId) {
+        return new LaneFlakeGenerator(machineId, new GenerationRulesBuilder(GenerationRules.snowflake(Instant.now()))
+                .setLaneSize(2)
+                .build());
+    }
+
+    @Override
+    FlakeGenerator makeGenerator(long machineId, GenerationRules rules) {
+        return new LaneFlakeGenerator(machineId, rules);
+    }
+
+    @Test
+    void GivenAsManyThreadsAsLanes_WhenNextId_ThenEachThreadUsesItsOwnLane() throws InterruptedException, ExecutionException {
+        final int LANE_SIZE = 2;
+        final int N_LANES = 1 << LANE_SIZE;
+        GenerationRules rules = new GenerationRulesBuilder(GenerationRules.snowflake(Instant.now()))
+                .setLaneSize(LANE_SIZE)
+                .build();
+        FlakeGenerator generator = makeGenerator(1, rules);
+        final int LOCAL_SEQUENCE_SIZE = rules.getSequenceSize() - LANE_SIZE;
+
+        Set<Long> lanes = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(N_LANES);
+        var barrier = new CyclicBarrier(N_LANES); // Make sure every thread is alive at the same time
+        Callable<Void> task = () -> {
+            barrier.await();
+            long sequence = rules.isolateComponents(generator.nextId())[2];
+            lanes.add(sequence >>> LOCAL_SEQUENCE_SIZE);
+            return null;
+        };
+        for (Future<Void> future : executor.invokeAll(Collections.nCopies(N_LANES, task))) {
+            future.get();
+        }
+        executor.shutdown();
+        assertEquals(N_LANES, lanes.size(), "Lanes used: " + lanes);
+    }
+
+    @Test
+    void GivenLaneSizeLargerThanSequence_WhenBuildRules_ThenThrow() {
+        var builder = new GenerationRulesBuilder(GenerationRules.sonyflake(Instant.now()))
+                .setLaneSize(9);
+        assertThrows(IllegalArgumentException.class, builder::build);
+    }
+
+    @Test
+    void GivenGeneratorsPinnedToDifferentLanes_WhenNextId_ThenIdsNeverCollide() {
+        final int LANE_SIZE = 1;
+        GenerationRules rules = new GenerationRulesBuilder(GenerationRules.snowflake(Instant.now()))
+                .setLaneSize(LANE_SIZE)
+                .build();
+        FlakeClock clock = new MonotonicFlakeClock(rules);
+        var first = new LaneFlakeGenerator(1, clock, 0);
+        var second = new LaneFlakeGenerator(1, clock, 1);
+        final int LOCAL_SEQUENCE_SIZE = rules.getSequenceSize() - LANE_SIZE;
+
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            long a = first.nextId();
+            long b = second.nextId();
+            assertEquals(0, rules.sequence(a) >>> LOCAL_SEQUENCE_SIZE);
+            assertEquals(1, rules.sequence(b) >>> LOCAL_SEQUENCE_SIZE);
+            assertTrue(ids.add(a));
+            assertTrue(ids.add(b));
+        }
+    }
+
+    @Test
+    void GivenFixedLaneOutOfRange_WhenCreate_ThenThrow() {
+        GenerationRules rules = new GenerationRulesBuilder(GenerationRules.snowflake(Instant.now()))
+                .setLaneSize(1)
+                .build();
+        assertThrows(IllegalArgumentException.class, () -> new LaneFlakeGenerator(1, new MonotonicFlakeClock(rules), 2));
+    }
+}
@@ -0,0 +1,62 @@
+package com.sb.flake;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeasedFlakeGeneratorTest {
+    private static final GenerationRules RULES = GenerationRules.snowflake(Instant.now());
+
+    @Test
+    void GivenValidLease_WhenNextId_ThenDelegateToSource() {
+        var lease = new FakeLease(3);
+        var generator = new LeasedFlakeGenerator(new LockFreeFlakeGenerator(3, RULES), lease);
+
+        long first = generator.nextId();
+        long[] batch = generator.nextIds(10);
+        assertEquals(3, RULES.workerId(first));
+        assertTrue(first < batch[0]);
+    }
+
+    @Test
+    void GivenLostLease_WhenGenerate_ThenThrowLeaseLostException() {
+        var lease = new FakeLease(3);
+        var generator = new LeasedFlakeGenerator(new LockFreeFlakeGenerator(3, RULES), lease);
+        generator.nextId();
+
+        lease.valid = false;
+        assertThrows(LeaseLostException.class, generator::nextId);
+        assertThrows(LeaseLostException.class, () -> generator.nextIds(10));
+        assertThrows(LeaseLostException.class, () -> generator.tryNextIds(new long[10], 0, 10));
+
+        lease.valid = true;
+        assertDoesNotThrow(generator::nextId);
+    }
+
+    @Test
+    void GivenOtherWorkerId_WhenConstruct_ThenThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new LeasedFlakeGenerator(new LockFreeFlakeGenerator(4, RULES), new FakeLease(3)));
+    }
+
+    private static class FakeLease implements LeasedWorkerIdSupplier {
+        private final long workerId;
+        private volatile boolean valid = true;
+
+        private FakeLease(long workerId) {
+            this.workerId = workerId;
+        }
+
+        @Override
+        public long getWorkerId(int maxLength) {
+            return workerId;
+        }
+
+        @Override
+        public boolean isLeaseValid() {
+            return valid;
+        }
+    }
+}
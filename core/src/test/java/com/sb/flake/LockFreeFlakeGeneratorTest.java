@@ -0,0 +1,15 @@
+package com.sb.flake;
+
+import java.time.Instant;
+
+public class LockFreeFlakeGeneratorTest extends FlakeGeneratorTestSuite {
+    @Override
+    FlakeGenerator makeGenerator(long machineId) {
+        return new LockFreeFlakeGenerator(machineId, GenerationRules.snowflake(Instant.now()));
+    }
+
+    @Override
+    FlakeGenerator makeGenerator(long machineId, GenerationRules rules) {
+        return new LockFreeFlakeGenerator(machineId, rules);
+    }
+}
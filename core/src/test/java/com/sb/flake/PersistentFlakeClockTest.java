@@ -0,0 +1,82 @@
+package com.sb.flake;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentFlakeClockTest {
+    private static final GenerationRules RULES = GenerationRules.snowflake(Instant.now());
+    private static final Duration RESERVATION = Duration.ofMillis(200);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void GivenNewFile_WhenShiftedTime_ThenFollowTheSourceWithinTheReservation() {
+        try (var clock = new PersistentFlakeClock(new MonotonicFlakeClock(RULES), directory.resolve("mark"),
+                RESERVATION, Duration.ZERO)) {
+            long time = clock.shiftedTime();
+            assertTrue(time < clock.getReservedLimit());
+            long reservedTicks = (clock.getReservedLimit() - time) >>> RULES.getTimestampShift();
+            assertTrue(reservedTicks <= RULES.ticksIn(RESERVATION), "Reserved " + reservedTicks + " ticks");
+        }
+    }
+
+    @Test
+    void GivenCrashedClock_WhenRestart_ThenWaitForTheMarkBeforeReusingTimestamps() {
+        Path file = directory.resolve("mark");
+        var crashed = new PersistentFlakeClock(new MonotonicFlakeClock(RULES), file, RESERVATION, Duration.ofSeconds(5));
+        long lastId = new LockFreeFlakeGenerator(1, crashed).nextId();
+        long markTicks = crashed.getReservedLimit() >>> RULES.getTimestampShift();
+
+        // Not closed, as if the process crashed
+        try (var restarted = new PersistentFlakeClock(new MonotonicFlakeClock(RULES), file, RESERVATION, Duration.ofSeconds(5))) {
+            assertTrue((restarted.shiftedTime() >>> RULES.getTimestampShift()) >= markTicks);
+            assertTrue(new LockFreeFlakeGenerator(1, restarted).nextId() > lastId);
+        }
+        crashed.close();
+    }
+
+    @Test
+    void GivenClosedClock_WhenRestart_ThenDoNotWait() {
+        Path file = directory.resolve("mark");
+        new PersistentFlakeClock(new MonotonicFlakeClock(RULES), file, Duration.ofSeconds(10), Duration.ofSeconds(10)).close();
+        // At most the tick of the closing is awaited, not the ten seconds reserved
+        assertTimeout(Duration.ofSeconds(1), () -> new PersistentFlakeClock(new MonotonicFlakeClock(RULES), file,
+                Duration.ofSeconds(10), Duration.ofSeconds(10)).close());
+    }
+
+    @Test
+    void GivenClockBehindTheMark_WhenRestart_ThenThrowInitializationException() {
+        Path file = directory.resolve("mark");
+        // Not closed: the mark stays an hour ahead
+        new PersistentFlakeClock(new MonotonicFlakeClock(RULES), file, Duration.ofHours(1), Duration.ZERO);
+        assertThrows(InitializationException.class,
+                () -> new PersistentFlakeClock(new MonotonicFlakeClock(RULES), file, RESERVATION, Duration.ofMillis(50)));
+    }
+
+    @Test
+    void GivenClosedClock_WhenShiftedTime_ThenThrowIllegalStateException() {
+        var clock = new PersistentFlakeClock(new MonotonicFlakeClock(RULES), directory.resolve("mark"));
+        clock.close();
+        assertThrows(IllegalStateException.class, clock::shiftedTime);
+    }
+
+    @Test
+    void GivenTimestampsUsingTheSignBit_WhenShiftedTime_ThenCompareThemUnsigned() {
+        // More than half of the 31 bits of milliseconds elapsed: the shifted timestamps are negative
+        GenerationRules rules = GenerationRules.veryHighFrequency(Instant.now().minus(Duration.ofDays(13)));
+        var clock = new PersistentFlakeClock(new MonotonicFlakeClock(rules), directory.resolve("mark"),
+                RESERVATION, Duration.ZERO);
+        long time = clock.shiftedTime();
+        assertTrue(time < 0);
+        assertTrue(Long.compareUnsigned(time, clock.getReservedLimit()) < 0);
+        clock.close();
+        assertThrows(IllegalStateException.class, clock::shiftedTime);
+    }
+}
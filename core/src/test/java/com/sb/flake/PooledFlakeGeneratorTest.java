@@ -0,0 +1,66 @@
+package com.sb.flake;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PooledFlakeGeneratorTest {
+
+    @Test
+    void GivenEmptyPool_WhenNextId_ThenRefillFromSource() {
+        GenerationRules rules = GenerationRules.snowflake(Instant.now());
+        FlakeGenerator source = new SynchronizedFlakeGenerator(1, rules);
+        final int POOL_SIZE = 10;
+        FlakeGenerator generator = new PooledFlakeGenerator(source, POOL_SIZE);
+
+        long[] pooled = new long[POOL_SIZE];
+        for (int i = 0; i < POOL_SIZE; i++) {
+            pooled[i] = generator.nextId();
+        }
+        long fromSource = source.nextId();
+        for (int i = 0; i < POOL_SIZE; i++) {
+            assertTrue(pooled[i] < fromSource, "The pool must have been filled at once, before the call to the source");
+            if (i > 0) {
+                assertTrue(pooled[i - 1] < pooled[i]);
+            }
+        }
+        assertTrue(fromSource < generator.nextId(), "The pool must be refilled once empty");
+    }
+
+    @Test
+    void GivenPools_WhenMultithreaded_ThenProvideUniqueIds() throws ExecutionException, InterruptedException {
+        FlakeGenerator generator = new PooledFlakeGenerator(new SynchronizedFlakeGenerator(1, GenerationRules.snowflake(Instant.now())), 64);
+
+        final int N_LOGICAL_CORES = Runtime.getRuntime().availableProcessors();
+        final int N_IDS_TO_GENERATE = 5_000;
+        Future<long[]>[] futureResults = new Future[N_LOGICAL_CORES];
+        ExecutorService executor = Executors.newFixedThreadPool(N_LOGICAL_CORES);
+        for (int i = 0; i < N_LOGICAL_CORES; i++) {
+            futureResults[i] = executor.submit(() -> {
+                long[] ids = new long[N_IDS_TO_GENERATE];
+                for (int j = 0; j < N_IDS_TO_GENERATE; j++) {
+                    ids[j] = generator.nextId();
+                }
+                return ids;
+            });
+        }
+        executor.shutdown();
+        Set<Long> registered = new HashSet<>();
+        for (Future<long[]> futureResult : futureResults) {
+            for (long id : futureResult.get()) {
+                assertTrue(registered.add(id), "Duplicate id: " + id);
+            }
+        }
+    }
+
+    @Test
+    void GivenNonPositivePoolSize_WhenCreate_ThenThrow() {
+        var source = new SynchronizedFlakeGenerator(1, GenerationRules.snowflake(Instant.now()));
+        assertThrows(IllegalArgumentException.class, () -> new PooledFlakeGenerator(source, 0));
+    }
+}
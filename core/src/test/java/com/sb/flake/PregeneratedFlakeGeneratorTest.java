@@ -0,0 +1,93 @@
+package com.sb.flake;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PregeneratedFlakeGeneratorTest {
+
+    @Test
+    void GivenNewGenerator_WhenNextId_ThenServeFirstIdOfSource() {
+        GenerationRules rules = GenerationRules.snowflake(Instant.now());
+        final int WORKER_ID = 5;
+        try (var generator = new PregeneratedFlakeGenerator(new SynchronizedFlakeGenerator(WORKER_ID, rules))) {
+            long id = generator.nextId();
+            assertEquals(WORKER_ID, rules.workerId(id));
+            assertEquals(0, rules.sequence(id));
+            assertEquals(rules, generator.getRules());
+        }
+    }
+
+    /**
+     * A small ring with no staleness tolerance forces the callers to wrap around the ring, fall back to the source,
+     * and race with the discards of the refill thread.
+     */
+    @Test
+    void GivenSmallRing_WhenMultithreaded_ThenProvideUniqueIds() throws ExecutionException, InterruptedException {
+        GenerationRules rules = GenerationRules.snowflake(Instant.now());
+        try (var generator = new PregeneratedFlakeGenerator(new LockFreeFlakeGenerator(1, rules), 64, 16, Duration.ZERO)) {
+            final int N_LOGICAL_CORES = Runtime.getRuntime().availableProcessors();
+            final int N_IDS_TO_GENERATE = 20_000;
+            Future<long[]>[] futureResults = new Future[N_LOGICAL_CORES];
+            ExecutorService executor = Executors.newFixedThreadPool(N_LOGICAL_CORES);
+            for (int i = 0; i < N_LOGICAL_CORES; i++) {
+                futureResults[i] = executor.submit(() -> {
+                    long[] ids = new long[N_IDS_TO_GENERATE];
+                    for (int j = 0; j < N_IDS_TO_GENERATE; j++) {
+                        ids[j] = generator.nextId();
+                    }
+                    return ids;
+                });
+            }
+            executor.shutdown();
+            Set<Long> registered = new HashSet<>();
+            for (Future<long[]> futureResult : futureResults) {
+                for (long id : futureResult.get()) {
+                    assertTrue(registered.add(id), "Duplicate id: " + id);
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("squid:S2925") // We want to pass the time as part of the test.
+    @Test
+    void GivenIdleGenerator_WhenNextId_ThenStaleIdsAreDiscarded() throws InterruptedException {
+        GenerationRules rules = GenerationRules.snowflake(Instant.now());
+        final Duration MAX_AGE = Duration.ofMillis(5);
+        try (var generator = new PregeneratedFlakeGenerator(new SynchronizedFlakeGenerator(1, rules), 1024, 128, MAX_AGE)) {
+            generator.nextId();
+            Thread.sleep(50);
+            long id = generator.nextId();
+            long ageInTicks = rules.timestampTicks(generator.getClock().shiftedTime()) - rules.timestampTicks(id);
+            // Generous bound: the refill thread checks the ring every half max age, and may be scheduled late
+            assertTrue(ageInTicks < 30, "ID is " + ageInTicks + " ticks old");
+        }
+    }
+
+    @SuppressWarnings("squid:S2925") // We want to pass the time as part of the test.
+    @Test
+    void GivenClosedGenerator_WhenNextId_ThenFallBackToSource() throws InterruptedException {
+        GenerationRules rules = GenerationRules.snowflake(Instant.now());
+        var generator = new PregeneratedFlakeGenerator(new SynchronizedFlakeGenerator(1, rules), 64, 16, Duration.ofSeconds(1));
+        generator.close();
+        Thread.sleep(5);
+        TreeSet<Long> registered = new TreeSet<>();
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(registered.add(generator.nextId()));
+        }
+    }
+
+    @Test
+    void GivenInvalidCapacity_WhenCreate_ThenThrow() {
+        var source = new SynchronizedFlakeGenerator(1, GenerationRules.snowflake(Instant.now()));
+        assertThrows(IllegalArgumentException.class, () -> new PregeneratedFlakeGenerator(source, 100, 10, Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> new PregeneratedFlakeGenerator(source, 64, 64, Duration.ZERO));
+    }
+}
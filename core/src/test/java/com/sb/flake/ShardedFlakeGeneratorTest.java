@@ -0,0 +1,91 @@
+package com.sb.flake;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedFlakeGeneratorTest {
+
+    @ParameterizedTest
+    @EnumSource(ShardedFlakeGenerator.Routing.class)
+    void GivenWorkerIdSlice_WhenMultithreaded_ThenProvideUniqueIds(ShardedFlakeGenerator.Routing routing) throws ExecutionException, InterruptedException {
+        GenerationRules rules = GenerationRules.snowflake(Instant.now());
+        var generator = ShardedFlakeGenerator.ofWorkerIdSlice(5, 3, new MonotonicFlakeClock(rules), routing);
+
+        final int N_THREADS = 8;
+        final int N_IDS_TO_GENERATE = 10_000;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(N_THREADS);
+        Future<?>[] futures = new Future[N_THREADS];
+        for (int i = 0; i < N_THREADS; i++) {
+            futures[i] = executor.submit(() -> {
+                long previous = 0;
+                for (int j = 0; j < N_IDS_TO_GENERATE; j++) {
+                    long id = generator.nextId();
+                    assertTrue(previous < id, "IDs of a thread must be increasing");
+                    assertTrue(ids.add(id), "Duplicate id: " + id);
+                    assertEquals(5, rules.workerId(id) >>> 3, "The high bits of the worker ID must be the one of the process");
+                    previous = id;
+                }
+            });
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertEquals(N_THREADS * N_IDS_TO_GENERATE, ids.size());
+    }
+
+    @Test
+    void GivenThreadRouting_WhenAsManyThreadsAsShards_ThenEachShardIsUsed() throws InterruptedException {
+        GenerationRules rules = GenerationRules.snowflake(Instant.now());
+        var generator = ShardedFlakeGenerator.ofWorkerIds(new long[]{10, 20, 30}, new MonotonicFlakeClock(rules),
+                ShardedFlakeGenerator.Routing.THREAD);
+        Set<Long> workerIds = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < 3; i++) {
+            Thread thread = new Thread(() -> workerIds.add(rules.workerId(generator.nextId())));
+            thread.start();
+            thread.join();
+        }
+        assertEquals(Set.of(10L, 20L, 30L), workerIds);
+    }
+
+    @Test
+    void GivenDuplicateWorkerIds_WhenCreate_ThenThrow() {
+        var clock = new MonotonicFlakeClock(GenerationRules.snowflake(Instant.now()));
+        var e = assertThrows(IllegalArgumentException.class,
+                () -> ShardedFlakeGenerator.ofWorkerIds(new long[]{1, 2, 1}, clock, ShardedFlakeGenerator.Routing.THREAD));
+        assertInstanceOf(NonUniqueException.class, e.getCause());
+    }
+
+    @Test
+    void GivenLanesOfTheSameWorkerId_WhenCreate_ThenAcceptDistinctLanesOnly() {
+        GenerationRules rules = new GenerationRulesBuilder(GenerationRules.snowflake(Instant.now())).setLaneSize(2).build();
+        FlakeClock clock = new MonotonicFlakeClock(rules);
+        var sharded = new ShardedFlakeGenerator(List.of(new LaneFlakeGenerator(1, clock, 0), new LaneFlakeGenerator(1, clock, 1)),
+                ShardedFlakeGenerator.Routing.THREAD);
+        assertEquals(2, sharded.getShards().size());
+
+        assertThrows(IllegalArgumentException.class, () -> new ShardedFlakeGenerator(
+                List.of(new LaneFlakeGenerator(1, clock, 1), new LaneFlakeGenerator(1, clock, 1)), ShardedFlakeGenerator.Routing.THREAD));
+        assertThrows(IllegalArgumentException.class, () -> new ShardedFlakeGenerator(
+                List.of(new LaneFlakeGenerator(1, clock, 1), new LockFreeFlakeGenerator(1, clock)), ShardedFlakeGenerator.Routing.THREAD));
+        assertThrows(IllegalArgumentException.class, () -> new ShardedFlakeGenerator(
+                List.of(new LaneFlakeGenerator(1, clock), new LaneFlakeGenerator(1, clock, 0)), ShardedFlakeGenerator.Routing.THREAD));
+    }
+
+    @Test
+    void GivenWorkerIdTooLargeForSlice_WhenCreate_ThenThrow() {
+        var clock = new MonotonicFlakeClock(GenerationRules.snowflake(Instant.now()));
+        // 10 worker bits, 4 of which identify the shard: 6 bits left for the process
+        assertThrows(IllegalArgumentException.class,
+                () -> ShardedFlakeGenerator.ofWorkerIdSlice(64, 4, clock, ShardedFlakeGenerator.Routing.STRIPED));
+    }
+}
@@ -2,8 +2,10 @@ package com.sb.flake;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import systems.helius.commons.SmartProperties;
 
+import java.nio.file.Path;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -46,22 +48,110 @@ class SunflakeConfigurationTest {
         props.putAll(Map.of(
                 EPOCH_PROPERTY, "2012-12-30",
                 SEQUENCE_SIZE, "20",
+                SEQUENCE_LANE_SIZE, "3",
                 WORKER_ID_SIZE, "20",
                 TIMESTAMP_SIZE, "20",
                 TIMESTAMP_UNIT, "DAYS",
                 TIMESTAMP_UNITS_PER_TICK, "5",
                 TIMESTAMP_ALLOW_USAGE_OF_SIGN_BIT, "true",
-                WORK_ID_SOURCE, RandomWorkerIdSupplier.class.getName()
+                WORK_ID_SOURCE, RandomWorkerIdSupplier.class.getName(),
+                WAIT_STRATEGY, "SPIN_THEN_PARK"
         ));
         SunflakeConfiguration.initialize(props);
 
         GenerationRules rules = SunflakeConfiguration.getGlobalRules();
         assertEquals(20, rules.SEQUENCE_SIZE);
+        assertEquals(3, rules.LANE_SIZE);
         assertEquals(20, rules.WORKER_ID_SIZE);
         assertEquals(20, rules.TIMESTAMP_SIZE);
         assertEquals(TimeUnit.DAYS, rules.TIME_UNIT);
         assertEquals(5, rules.TIME_UNITS_PER_TICK);
         assertTrue(rules.ALLOW_USAGE_OF_SIGN_BIT);
         assertEquals("2012-12-30T00:00:00Z", rules.EPOCH.toString());
+        assertEquals(WaitStrategy.SPIN_THEN_PARK, SunflakeConfiguration.getWaitStrategy());
+    }
+
+    @Test
+    void GivenNoWaitStrategy_WhenGetWaitStrategy_ThenBusySpin() {
+        assertEquals(WaitStrategy.BUSY_SPIN, SunflakeConfiguration.getWaitStrategy());
+    }
+
+    @Test
+    void GivenWorkerIdSource_WhenInitialize_ThenUseTheGivenPropertiesForTheSupplier(@TempDir Path directory) {
+        var props = new SmartProperties();
+        props.putAll(Map.of(
+                EPOCH_PROPERTY, "2025-02-10",
+                PRESET, "SNOWFLAKE",
+                WORK_ID_SOURCE, FileLockWorkerIdSupplier.class.getName(),
+                FileLockWorkerIdSupplier.DIRECTORY, directory.toString()
+        ));
+        SunflakeConfiguration.initialize(props);
+        try (var supplier = (FileLockWorkerIdSupplier) SunflakeConfiguration.getWorkerIdSupplier()) {
+            assertEquals(directory.resolve(FileLockWorkerIdSupplier.FILE_NAME), supplier.getFile());
+            assertEquals(supplier.getWorkerId(10), SunflakeConfiguration.getWorkerId());
+        }
+    }
+
+    @Test
+    void GivenWorkerIdSourceWithoutFactory_WhenInitialize_ThenThrowInitializationException() {
+        var props = new SmartProperties();
+        props.putAll(Map.of(
+                EPOCH_PROPERTY, "2025-02-10",
+                PRESET, "SNOWFLAKE",
+                WORK_ID_SOURCE, String.class.getName()
+        ));
+        assertThrows(InitializationException.class, () -> SunflakeConfiguration.initialize(props));
+    }
+
+    @Test
+    void GivenInitialized_WhenReconfigure_ThenSwapTheWholeSnapshot() {
+        var props = new SmartProperties();
+        props.putAll(Map.of(
+                EPOCH_PROPERTY, "2025-02-10",
+                PRESET, "SNOWFLAKE",
+                WORK_ID_SOURCE, RandomWorkerIdSupplier.class.getName()
+        ));
+        SunflakeConfiguration.initialize(props);
+        Snapshot initial = SunflakeConfiguration.getSnapshot();
+        assertSame(initial, SunflakeConfiguration.getSnapshot());
+
+        props.setProperty(EPOCH_PROPERTY, "2020-01-01");
+        props.setProperty(WAIT_STRATEGY, "SPIN_THEN_YIELD");
+        Snapshot reconfigured = SunflakeConfiguration.reconfigure(props);
+        assertSame(reconfigured, SunflakeConfiguration.getSnapshot());
+        assertEquals("2020-01-01T00:00:00Z", SunflakeConfiguration.getEpoch().toString());
+        assertEquals(SunflakeConfiguration.getEpoch(), SunflakeConfiguration.getGlobalRules().EPOCH);
+        assertEquals(WaitStrategy.SPIN_THEN_YIELD, SunflakeConfiguration.getWaitStrategy());
+        assertEquals("2025-02-10T00:00:00Z", initial.getEpoch().toString(), "Snapshots are immutable");
+    }
+
+    @Test
+    void GivenSameWorkerIdSource_WhenReconfigure_ThenKeepTheSupplierAndItsWorkerId(@TempDir Path directory) {
+        var props = new SmartProperties();
+        props.putAll(Map.of(
+                EPOCH_PROPERTY, "2025-02-10",
+                PRESET, "SNOWFLAKE",
+                WORK_ID_SOURCE, FileLockWorkerIdSupplier.class.getName(),
+                FileLockWorkerIdSupplier.DIRECTORY, directory.toString(),
+                FileLockWorkerIdSupplier.MAX_SLOTS, "1"
+        ));
+        Snapshot initial = SunflakeConfiguration.reconfigure(props);
+        try (var supplier = (FileLockWorkerIdSupplier) initial.getWorkerIdSupplier()) {
+            props.setProperty(EPOCH_PROPERTY, "2020-01-01");
+            // With a single slot, a second supplier could not claim a worker ID
+            Snapshot reconfigured = SunflakeConfiguration.reconfigure(props);
+            assertSame(supplier, reconfigured.getWorkerIdSupplier());
+            assertEquals(initial.getWorkerId(), reconfigured.getWorkerId());
+            assertEquals(FileLockWorkerIdSupplier.class.getName(), reconfigured.getWorkerIdSource());
+        }
+    }
+
+    @Test
+    void GivenInvalidProperties_WhenReconfigure_ThenKeepTheCurrentSnapshot() {
+        Snapshot initial = SunflakeConfiguration.getSnapshot();
+        var props = new SmartProperties();
+        props.setProperty(EPOCH_PROPERTY, "not a date");
+        assertThrows(InitializationException.class, () -> SunflakeConfiguration.reconfigure(props));
+        assertSame(initial, SunflakeConfiguration.getSnapshot());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,50 @@
+package com.sb.flake;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WaitStrategyTest {
+
+    private static FlakeGenerator makeGenerator(String implementation, WaitStrategy waitStrategy) {
+        FlakeClock clock = new MonotonicFlakeClock(GenerationRules.sonyflake(Instant.now()));
+        return switch (implementation) {
+            case "Synchronized" -> new SynchronizedFlakeGenerator(1, clock, waitStrategy);
+            case "LockFree" -> new LockFreeFlakeGenerator(1, clock, waitStrategy);
+            case "Lane" -> new LaneFlakeGenerator(1, clock, -1, waitStrategy);
+            default -> throw new IllegalArgumentException(implementation);
+        };
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = WaitStrategy.class, names = "FAIL_FAST", mode = EnumSource.Mode.EXCLUDE)
+    void GivenWaitingStrategy_WhenSequenceIsExhausted_ThenWaitForNextTick(WaitStrategy waitStrategy) {
+        for (String implementation : new String[]{"Synchronized", "LockFree", "Lane"}) {
+            FlakeGenerator generator = makeGenerator(implementation, waitStrategy);
+            final int N_IDS = (int) (generator.getRules().SEQUENCE_MASK + 1) * 3;
+            Set<Long> ids = new HashSet<>();
+            for (int i = 0; i < N_IDS; i++) {
+                assertTrue(ids.add(generator.nextId()), implementation + " generated a duplicate");
+            }
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"Synchronized", "LockFree", "Lane"})
+    void GivenFailFast_WhenSequenceIsExhausted_ThenThrow(String implementation) {
+        FlakeGenerator generator = makeGenerator(implementation, WaitStrategy.FAIL_FAST);
+        // The IDs of a few ticks at most, generating them is much faster than a tick
+        final int N_IDS = (int) (generator.getRules().SEQUENCE_MASK + 1) * 10;
+        assertThrows(ExhaustedTimestampsException.class, () -> {
+            for (int i = 0; i < N_IDS; i++) {
+                generator.nextId();
+            }
+        });
+    }
+}
@@ -0,0 +1,52 @@
+package com.sb.flake;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Decoder using the lane-wise shifts and masks of the incubating Vector API.
+ * <p>
+ * Only load this class after checking that the <code>jdk.incubator.vector</code> module is present.
+ * </p>
+ */
+final class VectorBulkFlakeDecoder implements BulkFlakeDecoder {
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    @Override
+    public void decode(GenerationRules rules, long[] flakes, int offset, int length,
+                       long[] timestamps, long[] workerIds, long[] sequences, int destinationOffset) {
+        final int vectorEnd = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < vectorEnd; i += SPECIES.length()) {
+            LongVector vector = LongVector.fromArray(SPECIES, flakes, offset + i);
+            if (timestamps != null) {
+                vector.lanewise(VectorOperators.LSHR, rules.TIMESTAMP_SHIFT)
+                        .and(rules.TIMESTAMP_MASK)
+                        .intoArray(timestamps, destinationOffset + i);
+            }
+            if (workerIds != null) {
+                vector.lanewise(VectorOperators.LSHR, rules.SEQUENCE_SIZE)
+                        .and(rules.WORKER_ID_MASK)
+                        .intoArray(workerIds, destinationOffset + i);
+            }
+            if (sequences != null) {
+                vector.and(rules.SEQUENCE_MASK)
+                        .intoArray(sequences, destinationOffset + i);
+            }
+        }
+        // Tail that does not fill a whole vector
+        for (; i < length; i++) {
+            long flake = flakes[offset + i];
+            if (timestamps != null) {
+                timestamps[destinationOffset + i] = rules.timestampTicks(flake);
+            }
+            if (workerIds != null) {
+                workerIds[destinationOffset + i] = rules.workerId(flake);
+            }
+            if (sequences != null) {
+                sequences[destinationOffset + i] = rules.sequence(flake);
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.sb.flake;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+
+import java.time.Instant;
+
+/**
+ * Criteria predicates that select entities by creation time through their Flake ID.
+ * <p>
+ * Since the timestamp occupies the most significant bits of a Flake ID, a range of creation times is a range of IDs:
+ * the predicates compare the primary key with the {@link GenerationRules#minId(Instant) smallest} and
+ * {@link GenerationRules#maxId(Instant) largest} IDs of the range. The database can then scan the index of the
+ * primary key, instead of requiring a separate creation time column and its own index.
+ * </p>
+ * <p>
+ * The bounds are included, at the granularity of a tick. The methods without rules use the
+ * {@link SunflakeConfiguration#getGlobalRules() global rules}.
+ * </p>
+ * <pre>{@code
+ * CriteriaQuery<Order> query = cb.createQuery(Order.class);
+ * Root<Order> order = query.from(Order.class);
+ * query.where(FlakeIdPredicates.createdBetween(cb, order.get(Order_.id), from, to));
+ * }</pre>
+ */
+public final class FlakeIdPredicates {
+    private FlakeIdPredicates() {
+    }
+
+    /**
+     * Select the IDs generated between two instants, both included.
+     */
+    public static Predicate createdBetween(CriteriaBuilder cb, Expression<Long> id, Instant from, Instant to) {
+        return createdBetween(cb, id, SunflakeConfiguration.getGlobalRules(), from, to);
+    }
+
+    /**
+     * Select the IDs generated between two instants, both included.
+     * @param cb the criteria builder of the query
+     * @param id the Flake ID, typically the primary key of the entity
+     * @param rules the rules the IDs were generated with
+     * @param from the first instant
+     * @param to the last instant
+     * @return a <code>BETWEEN</code> predicate on the ID
+     */
+    public static Predicate createdBetween(CriteriaBuilder cb, Expression<Long> id, GenerationRules rules,
+                                           Instant from, Instant to) {
+        long[] range = rules.idRange(from, to);
+        return cb.between(id, range[0], range[1]);
+    }
+
+    /**
+     * Select the IDs generated at or after an instant.
+     */
+    public static Predicate createdAtOrAfter(CriteriaBuilder cb, Expression<Long> id, Instant from) {
+        return createdAtOrAfter(cb, id, SunflakeConfiguration.getGlobalRules(), from);
+    }
+
+    public static Predicate createdAtOrAfter(CriteriaBuilder cb, Expression<Long> id, GenerationRules rules, Instant from) {
+        return cb.greaterThanOrEqualTo(id, rules.minId(from));
+    }
+
+    /**
+     * Select the IDs generated at or before an instant.
+     */
+    public static Predicate createdAtOrBefore(CriteriaBuilder cb, Expression<Long> id, Instant to) {
+        return createdAtOrBefore(cb, id, SunflakeConfiguration.getGlobalRules(), to);
+    }
+
+    public static Predicate createdAtOrBefore(CriteriaBuilder cb, Expression<Long> id, GenerationRules rules, Instant to) {
+        return cb.lessThanOrEqualTo(id, rules.maxId(to));
+    }
+}
@@ -1,6 +1,7 @@
 package com.sb.flake;
 
 import com.sb.flake.annotations.FlakeSequence;
+import org.hibernate.boot.model.relational.Database;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.hibernate.generator.AnnotationBasedGenerator;
 import org.hibernate.generator.BeforeExecutionGenerator;
@@ -12,18 +13,47 @@ import org.slf4j.LoggerFactory;
 
 import java.lang.reflect.Member;
 import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class HibernateFlakeIdGenerator implements AnnotationBasedGenerator<FlakeSequence>, BeforeExecutionGenerator {
     private static final Logger log = LoggerFactory.getLogger(HibernateFlakeIdGenerator.class);
 
-    private static final ConcurrentHashMap<Table, FlakeGenerator> generators = new ConcurrentHashMap<>();
+    /**
+     * Generators shared by the entities of the same scope, by scope and discriminant.
+     */
+    private static final ConcurrentHashMap<ScopeKey, FlakeGenerator> generators = new ConcurrentHashMap<>();
+    /**
+     * Lane each table is pinned to, in the {@link FlakeSequence.Scope#PARTITIONED partitioned} scope,
+     * by qualified table name. A table keeps its lane when the session factory is rebuilt.
+     */
+    private static final ConcurrentHashMap<String, Integer> partitions = new ConcurrentHashMap<>();
+    /**
+     * Next lane to pin a new table to.
+     */
+    private static final AtomicInteger nextPartition = new AtomicInteger();
+    /**
+     * Scopes of the entities of each mapping, guarded by itself.
+     */
+    private static final Map<Database, Set<FlakeSequence.Scope>> scopesInUse = new WeakHashMap<>();
 
     private FlakeGenerator generator;
 
     @Override
     public void initialize(FlakeSequence annotation, Member member, GeneratorCreationContext context) {
-        this.generator = makeGenerator(context.getPersistentClass().getRootTable());
+        Table table = context.getPersistentClass().getRootTable();
+        checkScope(annotation.scope(), table, context.getDatabase());
+        FlakeGenerator shared = makeGenerator(annotation, table);
+        if (annotation.optimizer() == FlakeSequence.Optimizer.POOLED) {
+            this.generator = new PooledFlakeGenerator(shared, annotation.allocationSize());
+        } else {
+            this.generator = shared;
+        }
+        log.debug("Initialize: FlakeIdGenerator: {}, scope {} for table {}",
+                System.identityHashCode(this), annotation.scope(), table.getName());
     }
 
     @Override
@@ -33,15 +63,106 @@ public class HibernateFlakeIdGenerator implements AnnotationBasedGenerator<Flake
 
     @Override
     public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
-        log.debug("Generate: FlakeIdGenerator: {}, generating ID for: {} ({})",
-                System.identityHashCode(this), owner, System.identityHashCode(owner));
+        if (log.isDebugEnabled()) {
+            log.debug("Generate: FlakeIdGenerator: {}, generating ID for: {} ({})",
+                    System.identityHashCode(this), owner, System.identityHashCode(owner));
+        }
         return generator.nextId();
     }
 
-    private static synchronized FlakeGenerator makeGenerator(Table table) {
-        return generators.computeIfAbsent(table, c -> new SynchronizedFlakeGenerator(
-                SunflakeConfiguration.getWorkerId(),
-                SunflakeConfiguration.getGlobalRules()
-        ));
+    /**
+     * Reject the mappings that mix the {@link FlakeSequence.Scope#GLOBAL global} or
+     * {@link FlakeSequence.Scope#PARTITIONED partitioned} scope with another scope: the generators of the other scopes
+     * use the same worker ID and sequence numbers, so the IDs would not be unique across all tables anymore.
+     */
+    private static void checkScope(FlakeSequence.Scope scope, Table table, Database database) {
+        synchronized (scopesInUse) {
+            Set<FlakeSequence.Scope> scopes = scopesInUse.computeIfAbsent(database, k -> EnumSet.noneOf(FlakeSequence.Scope.class));
+            for (FlakeSequence.Scope other : scopes) {
+                if (other != scope && (isAcrossTables(scope) || isAcrossTables(other))) {
+                    throw new InitializationException("The scope " + scope + " of table " + table.getName()
+                            + " cannot be mixed with the scope " + other + " of other entities, their IDs may collide."
+                            + " Use the same scope for every entity.");
+                }
+            }
+            scopes.add(scope);
+        }
+    }
+
+    /**
+     * Whether the IDs of the scope are unique across all tables, as long as no other scope is used.
+     */
+    private static boolean isAcrossTables(FlakeSequence.Scope scope) {
+        return scope == FlakeSequence.Scope.GLOBAL || scope == FlakeSequence.Scope.PARTITIONED;
+    }
+
+    private static FlakeGenerator makeGenerator(FlakeSequence annotation, Table table) {
+        return switch (annotation.scope()) {
+            case TABLE -> generators.computeIfAbsent(new ScopeKey(FlakeSequence.Scope.TABLE, table),
+                    k -> makeTableGenerator());
+            case GLOBAL -> generators.computeIfAbsent(new ScopeKey(FlakeSequence.Scope.GLOBAL, null),
+                    k -> makeSharedGenerator());
+            case GROUP -> {
+                if (annotation.group().isEmpty()) {
+                    throw new InitializationException("The GROUP scope requires a group name, table: " + table.getName());
+                }
+                yield generators.computeIfAbsent(new ScopeKey(FlakeSequence.Scope.GROUP, annotation.group()),
+                        k -> makeSharedGenerator());
+            }
+            case PARTITIONED -> generators.computeIfAbsent(new ScopeKey(FlakeSequence.Scope.PARTITIONED, table),
+                    k -> makePartitionGenerator(table));
+        };
+    }
+
+    /**
+     * Make a generator pinned to a lane no other table uses.
+     */
+    private static FlakeGenerator makePartitionGenerator(Table table) {
+        SunflakeConfiguration.Snapshot config = SunflakeConfiguration.getSnapshot();
+        GenerationRules rules = config.getRules();
+        int partition = partitions.computeIfAbsent(table.getExportIdentifier(), k -> nextPartition.getAndIncrement());
+        int nPartitions = 1 << rules.getLaneSize();
+        if (partition >= nPartitions) {
+            throw new InitializationException("Cannot partition table " + table.getName() + ": the lane size of "
+                    + rules.getLaneSize() + " bits only allows " + nPartitions + " partitioned tables. Increase "
+                    + SunflakeConfiguration.SEQUENCE_LANE_SIZE + ".");
+        }
+        return guard(new LaneFlakeGenerator(config.getWorkerId(), new MonotonicFlakeClock(rules), partition,
+                config.getWaitStrategy()), config);
+    }
+
+    /**
+     * Make the generator of a single table, which is rarely contended.
+     */
+    private static FlakeGenerator makeTableGenerator() {
+        SunflakeConfiguration.Snapshot config = SunflakeConfiguration.getSnapshot();
+        return guard(new SynchronizedFlakeGenerator(config.getWorkerId(), new MonotonicFlakeClock(config.getRules()),
+                config.getWaitStrategy()), config);
+    }
+
+    /**
+     * Make a generator shared by several tables, which does not serialize them on one lock.
+     */
+    private static FlakeGenerator makeSharedGenerator() {
+        SunflakeConfiguration.Snapshot config = SunflakeConfiguration.getSnapshot();
+        return guard(new LockFreeFlakeGenerator(config.getWorkerId(), new MonotonicFlakeClock(config.getRules()),
+                config.getWaitStrategy()), config);
+    }
+
+    /**
+     * Stop generating IDs once the lease of the worker ID is lost, when the worker ID is leased.
+     */
+    private static FlakeGenerator guard(FlakeGenerator generator, SunflakeConfiguration.Snapshot config) {
+        if (config.getWorkerIdSupplier() instanceof LeasedWorkerIdSupplier lease) {
+            return new LeasedFlakeGenerator(generator, lease);
+        }
+        return generator;
+    }
+
+    /**
+     * @param scope the scope of the generator
+     * @param discriminant the table or group name the generator is for, null for the global scope
+     */
+    private record ScopeKey(FlakeSequence.Scope scope, Object discriminant) {
     }
 }
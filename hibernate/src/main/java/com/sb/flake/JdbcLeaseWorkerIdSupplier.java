@@ -0,0 +1,346 @@
+package com.sb.flake;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import systems.helius.commons.SmartProperties;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Worker ID supplier that leases worker IDs from a database table shared by all the processes of the fleet.
+ * <p>
+ * The table has a row per worker ID, with the owner of its lease and the time the lease expires at,
+ * in milliseconds since the Unix epoch. A worker ID is claimed with a single atomic <code>UPDATE</code>
+ * of the first worker ID whose lease expired from a random offset, wrapping around, so that processes starting
+ * at the same time spread over the free worker IDs. Starting a process usually costs a single round trip to the database,
+ * the processes that still lose the race for a worker ID try again while some are free.
+ * The statements are plain SQL, tested on H2, and written to also run on PostgreSQL, MySQL and MariaDB.
+ * A background thread then renews the lease regularly, until the supplier is {@link #close() closed}.
+ * </p>
+ * <p>
+ * The lease is considered lost when it was not renewed for two thirds of its duration, the last third being a margin
+ * for the clocks of the processes to disagree. It is lost immediately when a renewal finds that another process
+ * took the worker ID. Use a {@link LeasedFlakeGenerator} to stop generating IDs once it is lost.
+ * </p>
+ * <p>
+ * The rows must exist before worker IDs are claimed, see {@link #createTable(int)}.
+ * </p>
+ */
+public class JdbcLeaseWorkerIdSupplier implements LeasedWorkerIdSupplier, AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(JdbcLeaseWorkerIdSupplier.class);
+
+    private static final String PREFIX = SunflakeConfiguration.PREFIX + "workerId.jdbc.";
+    /**
+     * (String) JDBC URL of the database holding the leases.
+     */
+    public static final String URL = PREFIX + "url";
+    public static final String USER = PREFIX + "user";
+    public static final String PASSWORD = PREFIX + "password";
+    /**
+     * (String [default: sunflake_worker_lease]) Name of the table holding the leases.
+     */
+    public static final String TABLE = PREFIX + "table";
+    /**
+     * (long [default: 30000]) How long a lease lasts without being renewed, in milliseconds.
+     */
+    public static final String LEASE_MILLIS = PREFIX + "leaseMillis";
+    /**
+     * (int [default: 0]) When positive, create the table and its rows for this many worker IDs if they are missing.
+     * Leave unset when the table is managed by the migrations of the database.
+     */
+    public static final String SLOTS = PREFIX + "slots";
+    public static final String DEFAULT_TABLE = "sunflake_worker_lease";
+    public static final Duration DEFAULT_LEASE = Duration.ofSeconds(30);
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*(\\.[A-Za-z_][A-Za-z0-9_]*)?");
+
+    private final ConnectionFactory connections;
+    private final String table;
+    private final Duration leaseDuration;
+    private final long leaseNanos;
+    /**
+     * Renewals are this far apart, and the clocks of the processes may disagree by as much.
+     */
+    private final long marginNanos;
+    private final String owner = UUID.randomUUID().toString();
+
+    private long workerId = -1;
+    /**
+     * Time, as given by {@link System#nanoTime()}, until which the lease is known to be owned.
+     */
+    private volatile long validUntilNanos;
+    private volatile boolean held;
+    private ScheduledExecutorService heartbeat;
+    private Thread shutdownHook;
+
+    public JdbcLeaseWorkerIdSupplier(DataSource dataSource) {
+        this(dataSource, DEFAULT_TABLE, DEFAULT_LEASE);
+    }
+
+    /**
+     * @param dataSource the database holding the leases
+     * @param table the name of the table holding the leases
+     * @param leaseDuration how long a lease lasts without being renewed
+     */
+    public JdbcLeaseWorkerIdSupplier(DataSource dataSource, String table, Duration leaseDuration) {
+        this(dataSource::getConnection, table, leaseDuration);
+    }
+
+    private JdbcLeaseWorkerIdSupplier(ConnectionFactory connections, String table, Duration leaseDuration) {
+        if (!IDENTIFIER.matcher(table).matches()) {
+            throw new IllegalArgumentException("Invalid table name: " + table);
+        }
+        if (leaseDuration.toMillis() < 3) {
+            throw new IllegalArgumentException("The lease must last at least 3 ms, was: " + leaseDuration);
+        }
+        this.connections = Objects.requireNonNull(connections);
+        this.table = table;
+        this.leaseDuration = leaseDuration;
+        this.leaseNanos = leaseDuration.toNanos();
+        this.marginNanos = leaseNanos / 3;
+    }
+
+    public static WorkerIdSupplier getInstance(SmartProperties properties) {
+        String url = properties.getProperty(URL);
+        if (url == null) {
+            throw new InitializationException("The JDBC URL of the worker ID leases is not set. Set it for the property " + URL + ".");
+        }
+        String user = properties.getProperty(USER);
+        String password = properties.getProperty(PASSWORD);
+        var supplier = new JdbcLeaseWorkerIdSupplier(() -> DriverManager.getConnection(url, user, password),
+                properties.getProperty(TABLE, DEFAULT_TABLE),
+                Duration.ofMillis(properties.getLong(LEASE_MILLIS, DEFAULT_LEASE.toMillis())));
+        int slots = properties.getInt(SLOTS, 0);
+        if (slots > 0) {
+            try {
+                supplier.createTable(slots);
+            } catch (SQLException e) {
+                throw new InitializationException("Exception while creating the worker ID lease table: " + supplier.table, e);
+            }
+        }
+        return supplier;
+    }
+
+    /**
+     * Create the table of the leases if it does not exist, and the rows of the worker IDs that are missing.
+     * Safe to call concurrently from several processes.
+     * @param slots how many worker IDs can be leased, from 0 included
+     */
+    public void createTable(int slots) throws SQLException {
+        try (Connection connection = connections.open()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + table
+                        + " (worker_id BIGINT PRIMARY KEY, owner VARCHAR(36), expires_at BIGINT NOT NULL)");
+            }
+            try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table
+                    + " (worker_id, owner, expires_at) SELECT CAST(? AS BIGINT), NULL, 0 WHERE NOT EXISTS"
+                    + " (SELECT 1 FROM " + table + " WHERE worker_id = ?)")) {
+                for (int i = 0; i < slots; i++) {
+                    insert.setLong(1, i);
+                    insert.setLong(2, i);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            } catch (SQLException e) {
+                // Another process inserted the same rows at the same time
+                log.debug("Concurrent creation of the worker ID leases of {}", table, e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized long getWorkerId(int maxLength) {
+        if (workerId == -1) {
+            try {
+                claim(maxLength >= Long.SIZE - 1 ? Long.MAX_VALUE : 1L << maxLength);
+            } catch (SQLException e) {
+                throw new InitializationException("Exception while leasing a worker ID from the table: " + table, e);
+            }
+        } else if (workerId >= 1L << maxLength) {
+            throw new IllegalStateException("The leased worker ID " + workerId + " does not fit on " + maxLength + " bits");
+        }
+        return workerId;
+    }
+
+    private void claim(long maxWorkerIds) throws SQLException {
+        try (Connection connection = connections.open();
+             // The offset is taken modulo the number of rows, and the lowest free worker ID is the wrap-around.
+             // MySQL and MariaDB cannot select from the table being updated, unless through a derived table
+             // that is materialized, as the aggregate forces it to be
+             PreparedStatement update = connection.prepareStatement("UPDATE " + table
+                     + " SET owner = ?, expires_at = ? WHERE expires_at < ? AND worker_id ="
+                     + " (SELECT free.worker_id FROM (SELECT COALESCE(MIN(CASE WHEN lease.worker_id >= MOD(?, bound.n)"
+                     + " THEN lease.worker_id END), MIN(lease.worker_id)) AS worker_id FROM " + table + " lease,"
+                     + " (SELECT MAX(worker_id) + 1 AS n FROM " + table + " WHERE worker_id < ?) bound"
+                     + " WHERE lease.expires_at < ? AND lease.worker_id < ?) free)",
+                     new String[]{"worker_id"});
+             PreparedStatement probe = connection.prepareStatement("SELECT COUNT(*) FROM " + table
+                     + " WHERE expires_at < ? AND worker_id < ?")) {
+            while (true) {
+                long start = System.nanoTime();
+                long now = System.currentTimeMillis();
+                update.setString(1, owner);
+                update.setLong(2, now + leaseDuration.toMillis());
+                update.setLong(3, now);
+                update.setLong(4, ThreadLocalRandom.current().nextLong(Long.MAX_VALUE));
+                update.setLong(5, maxWorkerIds);
+                update.setLong(6, now);
+                update.setLong(7, maxWorkerIds);
+                if (update.executeUpdate() == 1) {
+                    workerId = claimedWorkerId(connection, update);
+                    validUntilNanos = start + leaseNanos - marginNanos;
+                    held = true;
+                    startHeartbeat();
+                    log.info("Leased the worker ID {} from {} as {}", workerId, table, owner);
+                    return;
+                }
+                // Zero rows are updated when every lease is valid, or when another process updated the same row first
+                long free = countFree(probe, maxWorkerIds);
+                if (free == 0) {
+                    break;
+                }
+                log.debug("Lost the race for a worker ID of {} to another process, {} still free", table, free);
+            }
+        }
+        throw new InitializationException("All the worker IDs below " + maxWorkerIds + " are leased in the table: " + table);
+    }
+
+    private long countFree(PreparedStatement probe, long maxWorkerIds) throws SQLException {
+        probe.setLong(1, System.currentTimeMillis());
+        probe.setLong(2, maxWorkerIds);
+        try (ResultSet result = probe.executeQuery()) {
+            result.next();
+            return result.getLong(1);
+        }
+    }
+
+    /**
+     * Get the worker ID claimed by the update, falling back to a query for the drivers that do not return
+     * the columns of updated rows.
+     */
+    private long claimedWorkerId(Connection connection, PreparedStatement update) throws SQLException {
+        try (ResultSet keys = update.getGeneratedKeys()) {
+            if (keys.next()) {
+                return keys.getLong(1);
+            }
+        }
+        try (PreparedStatement select = connection.prepareStatement("SELECT worker_id FROM " + table + " WHERE owner = ?")) {
+            select.setString(1, owner);
+            try (ResultSet result = select.executeQuery()) {
+                result.next();
+                return result.getLong(1);
+            }
+        }
+    }
+
+    private void startHeartbeat() {
+        heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "sunflake-lease-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(this::renew, marginNanos, marginNanos, TimeUnit.NANOSECONDS);
+        shutdownHook = new Thread(this::close, "sunflake-lease-release");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Extend the lease. Only called by the heartbeat thread.
+     */
+    private void renew() {
+        long start = System.nanoTime();
+        try (Connection connection = connections.open();
+             PreparedStatement update = connection.prepareStatement("UPDATE " + table
+                     + " SET expires_at = ? WHERE worker_id = ? AND owner = ?")) {
+            update.setLong(1, System.currentTimeMillis() + leaseDuration.toMillis());
+            update.setLong(2, workerId);
+            update.setString(3, owner);
+            if (update.executeUpdate() == 1) {
+                validUntilNanos = start + leaseNanos - marginNanos;
+            } else if (held) {
+                held = false;
+                log.error("The lease of the worker ID {} was taken by another process, no more IDs can be generated", workerId);
+                heartbeat.shutdown();
+            }
+        } catch (SQLException e) {
+            // Keep trying until the lease expires, the database may be back before then
+            log.warn("Exception while renewing the lease of the worker ID {}", workerId, e);
+        }
+    }
+
+    @Override
+    public boolean isLeaseValid() {
+        return held && System.nanoTime() - validUntilNanos < 0;
+    }
+
+    /**
+     * Stop renewing the lease and release the worker ID, so that another process can claim it.
+     * The generators using the worker ID must not generate IDs anymore.
+     */
+    @Override
+    public synchronized void close() {
+        if (workerId == -1) {
+            return;
+        }
+        heartbeat.shutdownNow();
+        held = false;
+        try {
+            // A renewal in progress would find the worker ID released, and report it as taken by another process
+            if (!heartbeat.awaitTermination(marginNanos, TimeUnit.NANOSECONDS)) {
+                log.warn("The renewal of the lease of the worker ID {} is still running, releasing it anyway", workerId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try (Connection connection = connections.open();
+             PreparedStatement update = connection.prepareStatement("UPDATE " + table
+                     + " SET owner = NULL, expires_at = 0 WHERE worker_id = ? AND owner = ?")) {
+            update.setLong(1, workerId);
+            update.setString(2, owner);
+            update.executeUpdate();
+        } catch (SQLException e) {
+            log.warn("Exception while releasing the worker ID {}, it will be free once its lease expires", workerId, e);
+        }
+        workerId = -1;
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException ignored) {
+                // Already shutting down, the hook is running or about to
+            }
+        }
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public Duration getLeaseDuration() {
+        return leaseDuration;
+    }
+
+    /**
+     * The unique name of this supplier in the table.
+     */
+    public String getOwner() {
+        return owner;
+    }
+
+    @FunctionalInterface
+    private interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+}
@@ -14,4 +14,60 @@ import static java.lang.annotation.ElementType.METHOD;
 @Retention(RetentionPolicy.RUNTIME)
 @Target({METHOD, FIELD})
 public @interface FlakeSequence {
+    /**
+     * Which entities share the same underlying generator.
+     * The {@link Scope#GLOBAL} and {@link Scope#PARTITIONED} scopes cannot be mixed with another scope in a mapping,
+     * since the generators of the other scopes would hand out the same IDs.
+     */
+    Scope scope() default Scope.TABLE;
+
+    /**
+     * Name of the group of entities sharing a generator, when the scope is {@link Scope#GROUP}.
+     */
+    String group() default "";
+
+    /**
+     * How IDs are taken from the underlying generator.
+     */
+    Optimizer optimizer() default Optimizer.NONE;
+
+    /**
+     * How many IDs are taken at once from the underlying generator by the {@link Optimizer#POOLED} optimizer.
+     */
+    int allocationSize() default 500;
+
+    enum Optimizer {
+        /**
+         * Generate each ID when an entity is persisted.
+         */
+        NONE,
+        /**
+         * Take IDs from the underlying generator in chunks of {@link #allocationSize()}, in a pool per thread.
+         * The IDs of a chunk carry the timestamp of the moment the chunk was taken.
+         */
+        POOLED
+    }
+
+    enum Scope {
+        /**
+         * One generator per root table. IDs are unique within a table, but different tables may get the same IDs.
+         */
+        TABLE,
+        /**
+         * A single generator for every entity of the worker.
+         * IDs are unique across all tables, which is why every entity of the mapping must use this scope.
+         */
+        GLOBAL,
+        /**
+         * One generator per {@link #group() group}. IDs are unique across the tables of the group.
+         */
+        GROUP,
+        /**
+         * One generator per root table, each pinned to its own lane of the sequence number,
+         * so that tables generate concurrently without sharing any state, and IDs are unique across all tables.
+         * Like {@link #GLOBAL}, every entity of the mapping must use this scope.
+         * Requires a {@link com.sb.flake.GenerationRules#getLaneSize() lane size} large enough for every table.
+         */
+        PARTITIONED
+    }
 }
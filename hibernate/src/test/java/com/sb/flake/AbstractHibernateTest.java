@@ -23,6 +23,7 @@ abstract class AbstractHibernateTest {
         try (StandardServiceRegistry registry = new StandardServiceRegistryBuilder().build()) {
             sessionFactory = new MetadataSources(registry)
                     .addAnnotatedClass(TestEntity.class)
+                    .addAnnotatedClass(PooledTestEntity.class)
                     .buildMetadata()
                     .buildSessionFactory();
         } catch (Exception e) {
@@ -23,4 +23,15 @@ class FlakeEntityEntityManagementTest extends AbstractHibernateTest {
         assertNotNull(bar.getId());
         assertNotEquals(foo.getId(), bar.getId());
     }
+
+    @Test
+    void testSaveMultiplePooled_AllHaveDifferentIds() {
+        var foo = new PooledTestEntity("Hello");
+        var bar = new PooledTestEntity("world");
+        session.persist(foo);
+        session.persist(bar);
+        assertNotNull(foo.getId());
+        assertNotNull(bar.getId());
+        assertNotEquals(foo.getId(), bar.getId());
+    }
 }
@@ -0,0 +1,58 @@
+package com.sb.flake;
+
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlakeIdPredicatesTest extends AbstractHibernateTest {
+
+    @Test
+    void GivenEntitiesCreatedDuringRange_WhenCreatedBetween_ThenSelectThem() {
+        Instant before = Instant.now().minus(Duration.ofSeconds(1));
+        var foo = new TestEntity("foo");
+        var bar = new TestEntity("bar");
+        session.persist(foo);
+        session.persist(bar);
+        session.flush();
+        Instant after = Instant.now().plus(Duration.ofSeconds(1));
+
+        List<Long> ids = selectIds((cb, id) -> FlakeIdPredicates.createdBetween(cb, id, before, after));
+        assertTrue(ids.containsAll(List.of(foo.getId(), bar.getId())));
+
+        ids = selectIds((cb, id) -> FlakeIdPredicates.createdBetween(cb, id, before.minus(Duration.ofHours(1)), before));
+        assertFalse(ids.contains(foo.getId()));
+        assertFalse(ids.contains(bar.getId()));
+    }
+
+    @Test
+    void GivenEntity_WhenCreatedAtOrAfterOrBefore_ThenCompareWithItsCreationTime() {
+        var foo = new TestEntity("foo");
+        session.persist(foo);
+        session.flush();
+        Instant created = SunflakeConfiguration.parse(foo.getId()).getTimestamp();
+
+        assertTrue(selectIds((cb, id) -> FlakeIdPredicates.createdAtOrAfter(cb, id, created)).contains(foo.getId()));
+        assertTrue(selectIds((cb, id) -> FlakeIdPredicates.createdAtOrBefore(cb, id, created)).contains(foo.getId()));
+        assertFalse(selectIds((cb, id) -> FlakeIdPredicates.createdAtOrAfter(cb, id, created.plusSeconds(1))).contains(foo.getId()));
+        assertFalse(selectIds((cb, id) -> FlakeIdPredicates.createdAtOrBefore(cb, id, created.minusSeconds(1))).contains(foo.getId()));
+    }
+
+    private List<Long> selectIds(BiFunction<CriteriaBuilder, Path<Long>, Predicate> predicate) {
+        CriteriaBuilder cb = session.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<TestEntity> root = query.from(TestEntity.class);
+        Path<Long> id = root.get("id");
+        query.select(id).where(predicate.apply(cb, id));
+        return session.createQuery(query).getResultList();
+    }
+}
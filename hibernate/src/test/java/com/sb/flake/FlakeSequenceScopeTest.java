@@ -0,0 +1,56 @@
+package com.sb.flake;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FlakeSequenceScopeTest {
+
+    private static SessionFactory buildSessionFactory(String database, Class<?>... entities) {
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySetting("hibernate.connection.url", "jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1")
+                .build();
+        MetadataSources sources = new MetadataSources(registry);
+        for (Class<?> entity : entities) {
+            sources.addAnnotatedClass(entity);
+        }
+        try {
+            return sources.buildMetadata().buildSessionFactory();
+        } catch (RuntimeException e) {
+            StandardServiceRegistryBuilder.destroy(registry);
+            throw e;
+        }
+    }
+
+    @Test
+    void GivenTableAndGroupScopes_WhenPersist_ThenEachEntityGetsAnId() {
+        try (SessionFactory sessionFactory = buildSessionFactory("tableAndGroupScopes", TestEntity.class, GroupTestEntity.class);
+             Session session = sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            var inTable = new TestEntity("table");
+            var inGroup = new GroupTestEntity("group");
+            session.persist(inTable);
+            session.persist(inGroup);
+            transaction.commit();
+            assertNotNull(inTable.getId());
+            assertNotNull(inGroup.getId());
+        }
+    }
+
+    @Test
+    void GivenGlobalScopeMixedWithTableScope_WhenBuildSessionFactory_ThenThrowInitializationException() {
+        Exception e = assertThrows(Exception.class,
+                () -> buildSessionFactory("globalAndTableScopes", TestEntity.class, GlobalTestEntity.class).close());
+        Throwable cause = e;
+        while (cause != null && !(cause instanceof InitializationException)) {
+            cause = cause.getCause();
+        }
+        assertNotNull(cause, "Not rejected by the generator: " + e);
+    }
+}
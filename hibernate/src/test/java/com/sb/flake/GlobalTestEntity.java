@@ -0,0 +1,27 @@
+package com.sb.flake;
+
+import com.sb.flake.annotations.FlakeSequence;
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "global_test_entity")
+public class GlobalTestEntity {
+    @Id
+    @FlakeSequence(scope = FlakeSequence.Scope.GLOBAL)
+    private Long id;
+    private String name;
+
+    public GlobalTestEntity() {}
+
+    public GlobalTestEntity(String name) {
+        this.name = name;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
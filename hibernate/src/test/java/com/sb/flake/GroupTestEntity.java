@@ -0,0 +1,27 @@
+package com.sb.flake;
+
+import com.sb.flake.annotations.FlakeSequence;
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "group_test_entity")
+public class GroupTestEntity {
+    @Id
+    @FlakeSequence(scope = FlakeSequence.Scope.GROUP, group = "audit")
+    private Long id;
+    private String name;
+
+    public GroupTestEntity() {}
+
+    public GroupTestEntity(String name) {
+        this.name = name;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,179 @@
+package com.sb.flake;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import systems.helius.commons.SmartProperties;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdbcLeaseWorkerIdSupplierTest {
+    private static final AtomicInteger databases = new AtomicInteger();
+    private static final int N_SLOTS = 4;
+
+    private JdbcDataSource dataSource;
+    private final List<JdbcLeaseWorkerIdSupplier> suppliers = new ArrayList<>();
+
+    @BeforeEach
+    void createDatabase() throws SQLException {
+        dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:leases" + databases.incrementAndGet() + ";DB_CLOSE_DELAY=-1");
+        newSupplier(JdbcLeaseWorkerIdSupplier.DEFAULT_LEASE).createTable(N_SLOTS);
+    }
+
+    @AfterEach
+    void closeSuppliers() {
+        suppliers.forEach(JdbcLeaseWorkerIdSupplier::close);
+    }
+
+    private JdbcLeaseWorkerIdSupplier newSupplier(Duration leaseDuration) {
+        var supplier = new JdbcLeaseWorkerIdSupplier(dataSource, JdbcLeaseWorkerIdSupplier.DEFAULT_TABLE, leaseDuration);
+        suppliers.add(supplier);
+        return supplier;
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+            statement.executeUpdate(sql);
+        }
+    }
+
+    @Test
+    void GivenSeveralSuppliers_WhenGetWorkerId_ThenEachLeasesADistinctId() {
+        Set<Long> workerIds = new HashSet<>();
+        for (int i = 0; i < N_SLOTS; i++) {
+            var supplier = newSupplier(JdbcLeaseWorkerIdSupplier.DEFAULT_LEASE);
+            long workerId = supplier.getWorkerId(10);
+            assertTrue(workerId >= 0 && workerId < N_SLOTS);
+            assertTrue(workerIds.add(workerId), "Duplicate worker ID: " + workerId);
+            assertTrue(supplier.isLeaseValid());
+        }
+        var tooMany = newSupplier(JdbcLeaseWorkerIdSupplier.DEFAULT_LEASE);
+        assertThrows(InitializationException.class, () -> tooMany.getWorkerId(10));
+        assertFalse(tooMany.isLeaseValid());
+    }
+
+    @Test
+    void GivenSmallWorkerIdSize_WhenGetWorkerId_ThenOnlyLeaseIdsThatFit() {
+        long first = newSupplier(JdbcLeaseWorkerIdSupplier.DEFAULT_LEASE).getWorkerId(1);
+        long second = newSupplier(JdbcLeaseWorkerIdSupplier.DEFAULT_LEASE).getWorkerId(1);
+        assertEquals(Set.of(0L, 1L), Set.of(first, second));
+        var third = newSupplier(JdbcLeaseWorkerIdSupplier.DEFAULT_LEASE);
+        assertThrows(InitializationException.class, () -> third.getWorkerId(1));
+    }
+
+    @Test
+    void GivenSuppliersStartingTogether_WhenGetWorkerId_ThenEachLeasesADistinctId() throws Exception {
+        final int N_SUPPLIERS = 64; // Far more than one winner per round of claims
+        newSupplier(JdbcLeaseWorkerIdSupplier.DEFAULT_LEASE).createTable(N_SUPPLIERS);
+        CyclicBarrier start = new CyclicBarrier(N_SUPPLIERS);
+        ExecutorService executor = Executors.newFixedThreadPool(N_SUPPLIERS);
+        try {
+            List<Future<Long>> workerIds = new ArrayList<>();
+            for (int i = 0; i < N_SUPPLIERS; i++) {
+                var supplier = newSupplier(JdbcLeaseWorkerIdSupplier.DEFAULT_LEASE);
+                workerIds.add(executor.submit(() -> {
+                    start.await();
+                    return supplier.getWorkerId(10);
+                }));
+            }
+            Set<Long> distinct = new HashSet<>();
+            for (Future<Long> workerId : workerIds) {
+                assertTrue(distinct.add(workerId.get(30, TimeUnit.SECONDS)), "Duplicate worker ID");
+            }
+            assertEquals(N_SUPPLIERS, distinct.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void GivenClosedSupplier_WhenAnotherSupplierLeases_ThenIdIsReused() {
+        // A single worker ID fits on 0 bits
+        var first = newSupplier(JdbcLeaseWorkerIdSupplier.DEFAULT_LEASE);
+        long workerId = first.getWorkerId(0);
+        first.close();
+        assertFalse(first.isLeaseValid());
+        assertEquals(workerId, newSupplier(JdbcLeaseWorkerIdSupplier.DEFAULT_LEASE).getWorkerId(0));
+    }
+
+    @Test
+    void GivenExpiredLease_WhenAnotherSupplierLeases_ThenIdIsReused() throws SQLException {
+        long workerId = newSupplier(JdbcLeaseWorkerIdSupplier.DEFAULT_LEASE).getWorkerId(0);
+        execute("UPDATE " + JdbcLeaseWorkerIdSupplier.DEFAULT_TABLE + " SET expires_at = 0"); // As if the process crashed
+        assertEquals(workerId, newSupplier(JdbcLeaseWorkerIdSupplier.DEFAULT_LEASE).getWorkerId(0));
+    }
+
+    @Test
+    void GivenHeartbeat_WhenLeaseDurationElapses_ThenLeaseIsRenewed() throws InterruptedException {
+        var supplier = newSupplier(Duration.ofMillis(300));
+        supplier.getWorkerId(10);
+        Thread.sleep(1_000);
+        assertTrue(supplier.isLeaseValid());
+    }
+
+    @Test
+    void GivenLeaseTakenByAnotherProcess_WhenRenewed_ThenRefuseToGenerate() throws SQLException, InterruptedException {
+        var supplier = newSupplier(Duration.ofMillis(300));
+        long workerId = supplier.getWorkerId(10);
+        GenerationRules rules = GenerationRules.snowflake(Instant.now());
+        var generator = new LeasedFlakeGenerator(new LockFreeFlakeGenerator(workerId, rules), supplier);
+        generator.nextId();
+
+        execute("UPDATE " + JdbcLeaseWorkerIdSupplier.DEFAULT_TABLE + " SET owner = 'another process'");
+        awaitLeaseLost(supplier);
+        assertThrows(LeaseLostException.class, generator::nextId);
+    }
+
+    @Test
+    void GivenUnreachableDatabase_WhenLeaseExpires_ThenLeaseIsLost() throws SQLException, InterruptedException {
+        var supplier = newSupplier(Duration.ofMillis(300));
+        supplier.getWorkerId(10);
+
+        execute("DROP TABLE " + JdbcLeaseWorkerIdSupplier.DEFAULT_TABLE); // Every renewal fails from now on
+        awaitLeaseLost(supplier);
+    }
+
+    private static void awaitLeaseLost(JdbcLeaseWorkerIdSupplier supplier) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (supplier.isLeaseValid() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(supplier.isLeaseValid());
+    }
+
+    @Test
+    void GivenProperties_WhenGetInstance_ThenCreateTableAndLease() {
+        var props = new SmartProperties();
+        props.setProperty(JdbcLeaseWorkerIdSupplier.URL, "jdbc:h2:mem:leasesFromProperties;DB_CLOSE_DELAY=-1");
+        props.setProperty(JdbcLeaseWorkerIdSupplier.TABLE, "custom_lease");
+        props.setProperty(JdbcLeaseWorkerIdSupplier.SLOTS, "2");
+        var supplier = (JdbcLeaseWorkerIdSupplier) JdbcLeaseWorkerIdSupplier.getInstance(props);
+        suppliers.add(supplier);
+        assertEquals("custom_lease", supplier.getTable());
+        assertTrue(supplier.getWorkerId(10) < 2);
+    }
+
+    @Test
+    void GivenInvalidTableName_WhenConstruct_ThenThrowIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> new JdbcLeaseWorkerIdSupplier(dataSource,
+                "leases; DROP TABLE users", JdbcLeaseWorkerIdSupplier.DEFAULT_LEASE));
+    }
+}
@@ -0,0 +1,107 @@
+package com.sb.flake;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Persists entities with JDBC batching, with and without the pooled optimizer.
+ * Uses its own database without SQL logging, so that the logging does not dominate the measure.
+ * <p>
+ * The comparison of the throughputs only runs with the <code>benchmark</code> task of the module.
+ * </p>
+ */
+class PooledInsertThroughputTest {
+    private static final Logger log = LoggerFactory.getLogger(PooledInsertThroughputTest.class);
+    private static final int N_ENTITIES = 100_000;
+    private static final int BATCH_SIZE = 500;
+    /**
+     * How much slower than without the optimizer the pooled inserts may be, to absorb the noise of the measure.
+     */
+    private static final double TOLERANCE = 1.1;
+
+    private static SessionFactory sessionFactory;
+
+    @BeforeAll
+    static void bootstrap() {
+        StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                .applySetting("hibernate.connection.url", "jdbc:h2:mem:throughput;DB_CLOSE_DELAY=-1")
+                .applySetting("hibernate.show_sql", "false")
+                .applySetting("hibernate.jdbc.batch_size", String.valueOf(BATCH_SIZE))
+                .applySetting("hibernate.order_inserts", "true")
+                .build();
+        sessionFactory = new MetadataSources(registry)
+                .addAnnotatedClass(TestEntity.class)
+                .addAnnotatedClass(PooledTestEntity.class)
+                .buildMetadata()
+                .buildSessionFactory();
+    }
+
+    @AfterAll
+    static void close() {
+        sessionFactory.close();
+    }
+
+    @Test
+    void GivenBatchInserts_WhenPersistWithAndWithoutPool_ThenAllIdsAreUnique() {
+        persistAll(BATCH_SIZE * 4, TestEntity::new, TestEntity::getId);
+        persistAll(BATCH_SIZE * 4, PooledTestEntity::new, PooledTestEntity::getId);
+    }
+
+    @Tag("benchmark")
+    @Test
+    void GivenManyBatchInserts_WhenPersistWithAndWithoutPool_ThenPoolIsNotSlower() {
+        // Warm up both paths so that the comparison does not measure class loading
+        persistAll(10_000, TestEntity::new, TestEntity::getId);
+        persistAll(10_000, PooledTestEntity::new, PooledTestEntity::getId);
+
+        long unpooledNanos = persistAll(N_ENTITIES, TestEntity::new, TestEntity::getId);
+        long pooledNanos = persistAll(N_ENTITIES, PooledTestEntity::new, PooledTestEntity::getId);
+        log.info("Persisted {} entities in batches of {}: unpooled {} ms, pooled {} ms", N_ENTITIES, BATCH_SIZE,
+                TimeUnit.NANOSECONDS.toMillis(unpooledNanos), TimeUnit.NANOSECONDS.toMillis(pooledNanos));
+        assertTrue(pooledNanos <= unpooledNanos * TOLERANCE, "Pooled inserts took " + TimeUnit.NANOSECONDS.toMillis(pooledNanos)
+                + " ms, unpooled " + TimeUnit.NANOSECONDS.toMillis(unpooledNanos) + " ms");
+    }
+
+    /**
+     * Persist entities in a single transaction, flushing and clearing the session after each JDBC batch.
+     * @return the time taken, in nanoseconds
+     */
+    private static <T> long persistAll(int n, Function<String, T> constructor, Function<T, Long> getId) {
+        Set<Long> ids = new HashSet<>(n * 2);
+        long start = System.nanoTime();
+        try (Session session = sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            for (int i = 0; i < n; i++) {
+                T entity = constructor.apply("Entity " + i);
+                session.persist(entity);
+                assertTrue(ids.add(getId.apply(entity)), "Duplicate id: " + getId.apply(entity));
+                if ((i + 1) % BATCH_SIZE == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+            transaction.commit();
+        }
+        long elapsed = System.nanoTime() - start;
+        assertEquals(n, ids.size());
+        return elapsed;
+    }
+}
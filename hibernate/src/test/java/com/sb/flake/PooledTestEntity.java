@@ -0,0 +1,27 @@
+package com.sb.flake;
+
+import com.sb.flake.annotations.FlakeSequence;
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "pooled_test_entity")
+public class PooledTestEntity {
+    @Id
+    @FlakeSequence(optimizer = FlakeSequence.Optimizer.POOLED)
+    private Long id;
+    private String name;
+
+    public PooledTestEntity() {}
+
+    public PooledTestEntity(String name) {
+        this.name = name;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+}